@@ -0,0 +1,313 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * Assigns dense integer IDs to document locations (file paths or URLs), so the
+ * index can refer to each document by its ID and only look up the location
+ * when a result is displayed. IDs are handed out in the order documents are
+ * first seen, starting at 0. The table also keeps the word count of each
+ * document, since a document has one count no matter how many indexes share
+ * the table, along with the number of documents that have words and their
+ * total count, which scorers use for the average document length.
+ *
+ * Deleting a document leaves a tombstone on its ID instead of touching the
+ * postings that refer to it; searches skip tombstoned IDs until the index
+ * reclaims them. A deleted location gets a new ID if it is added again, so a
+ * tombstone never has to be lifted.
+ *
+ * Writing is synchronized so one table can be shared between threads. Looking
+ * up a location, count or tombstone by ID does not lock; the caller must have
+ * learned the ID through some other synchronized path (like the index lock).
+ *
+ * @author Jaden
+ *
+ */
+public class DocumentTable {
+
+	/**
+	 * Locations by document ID
+	 */
+	private volatile String[] locations;
+
+	/**
+	 * Word counts by document ID
+	 */
+	private volatile int[] counts;
+
+	/**
+	 * Number of documents in the table
+	 */
+	private volatile int size;
+
+	/**
+	 * Number of documents with a word count above 0
+	 */
+	private volatile int counted;
+
+	/**
+	 * Sum of the word counts of every document
+	 */
+	private volatile long total;
+
+	/**
+	 * Document IDs by location, for documents that are not deleted
+	 */
+	private final HashMap<String, Integer> ids;
+
+	/**
+	 * IDs of deleted documents. Replaced, never modified, so it can be read
+	 * without locking.
+	 */
+	private volatile BitSet deleted;
+
+	/**
+	 * Constructor
+	 */
+	public DocumentTable() {
+		this.locations = new String[16];
+		this.counts = new int[16];
+		this.size = 0;
+		this.counted = 0;
+		this.total = 0;
+		this.ids = new HashMap<>();
+		this.deleted = new BitSet();
+	}
+
+	/**
+	 * Returns the ID of a location, assigning the next free ID if the location
+	 * has not been seen before.
+	 *
+	 * @param location the location to add
+	 * @return the document ID of the location
+	 */
+	public synchronized int add(String location) {
+		Integer id = ids.get(location);
+		if (id != null) {
+			return id;
+		}
+		return append(location);
+	}
+
+	/**
+	 * Assigns the next free ID to a location even if it already has one, so IDs
+	 * match positions in a list that may repeat a location (like the document
+	 * records of a saved index). Later lookups of the location find the new ID.
+	 *
+	 * @param location the location to add
+	 * @return the new document ID of the location
+	 */
+	public synchronized int append(String location) {
+		if (size == locations.length) {
+			counts = Arrays.copyOf(counts, size + (size >> 1));
+			locations = Arrays.copyOf(locations, size + (size >> 1));
+		}
+
+		locations[size] = location;
+		ids.put(location, size);
+		return size++;
+	}
+
+	/**
+	 * Deletes a document by leaving a tombstone on its ID and resetting its word
+	 * count. Adding the location again gives it a new ID.
+	 *
+	 * @param location the location to delete
+	 * @return the ID that was deleted, or -1 if the location is not in the table
+	 */
+	public synchronized int delete(String location) {
+		Integer id = ids.remove(location);
+		if (id == null) {
+			return -1;
+		}
+
+		setCount(id, 0);
+		BitSet updated = (BitSet) deleted.clone();
+		updated.set(id);
+		deleted = updated;
+		return id;
+	}
+
+	/**
+	 * Deletes documents by ID, leaving a tombstone on each and resetting their
+	 * word counts. Unlike {@link #delete(String)}, this also works for IDs whose
+	 * location was detached or given a newer ID, and the tombstones are
+	 * published together.
+	 *
+	 * @param removed the IDs to delete
+	 */
+	public synchronized void delete(BitSet removed) {
+		for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+			if (id >= size) {
+				throw new IndexOutOfBoundsException("No document with ID " + id);
+			}
+			ids.remove(locations[id], id);
+			setCount(id, 0);
+		}
+
+		BitSet updated = (BitSet) deleted.clone();
+		updated.or(removed);
+		deleted = updated;
+	}
+
+	/**
+	 * Makes locations get new IDs the next time they are added, without
+	 * deleting their current IDs. The old IDs stay live, so a replacement can be
+	 * built while searches still see the old documents, and the index can then
+	 * drop the old IDs from its postings and delete them with
+	 * {@link #delete(BitSet)}.
+	 *
+	 * @param locations the locations to give new IDs
+	 * @return the current IDs of the locations that are in the table
+	 */
+	public synchronized BitSet detach(Collection<String> locations) {
+		BitSet detached = new BitSet();
+		for (String location : locations) {
+			Integer id = ids.remove(location);
+			if (id != null) {
+				detached.set(id);
+			}
+		}
+		return detached;
+	}
+
+	/**
+	 * Checks if a document was deleted.
+	 *
+	 * @param id the document ID
+	 * @return true if the document has a tombstone
+	 */
+	public boolean isDeleted(int id) {
+		return deleted.get(id);
+	}
+
+	/**
+	 * Checks if any document was deleted.
+	 *
+	 * @return true if there is at least one tombstone
+	 */
+	public boolean hasDeleted() {
+		return !deleted.isEmpty();
+	}
+
+	/**
+	 * Returns the IDs of deleted documents.
+	 *
+	 * @return the tombstones as a new set
+	 */
+	public BitSet getDeleted() {
+		return (BitSet) deleted.clone();
+	}
+
+	/**
+	 * Returns the ID of a location.
+	 *
+	 * @param location the location to look up
+	 * @return the document ID, or -1 if the location is not in the table or was
+	 *         deleted
+	 */
+	public synchronized int getId(String location) {
+		Integer id = ids.get(location);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the location of a document.
+	 *
+	 * @param id the document ID
+	 * @return the location of the document
+	 */
+	public String getLocation(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No document with ID " + id);
+		}
+		return locations[id];
+	}
+
+	/**
+	 * Raises the word count of a document to at least the given position.
+	 *
+	 * @param id       the document ID
+	 * @param position a position in the document
+	 */
+	public synchronized void updateCount(int id, int position) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No document with ID " + id);
+		}
+		if (position > counts[id]) {
+			setCount(id, position);
+		}
+	}
+
+	/**
+	 * Resets the word count of a document to 0, for when it is removed from the
+	 * index. The document keeps its ID.
+	 *
+	 * @param id the document ID
+	 */
+	public synchronized void clearCount(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No document with ID " + id);
+		}
+		setCount(id, 0);
+	}
+
+	/**
+	 * Changes the word count of a document, keeping the totals up to date. Must
+	 * be called while holding the lock.
+	 *
+	 * @param id    the document ID
+	 * @param count the new word count
+	 */
+	private void setCount(int id, int count) {
+		if (counts[id] == 0 && count > 0) {
+			counted++;
+		} else if (counts[id] > 0 && count == 0) {
+			counted--;
+		}
+		total += count - counts[id];
+		counts[id] = count;
+	}
+
+	/**
+	 * Returns the word count of a document.
+	 *
+	 * @param id the document ID
+	 * @return the word count, or 0 if nothing has been indexed for it
+	 */
+	public int getCount(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No document with ID " + id);
+		}
+		return counts[id];
+	}
+
+	/**
+	 * Returns the number of documents that have words, leaving out deleted ones.
+	 *
+	 * @return the number of documents with a word count above 0
+	 */
+	public int getCountedSize() {
+		return counted;
+	}
+
+	/**
+	 * Returns the average word count of the documents that have words.
+	 *
+	 * @return the average word count, or 0 if no document has words
+	 */
+	public double getAverageCount() {
+		int documents = counted;
+		return documents == 0 ? 0 : (double) total / documents;
+	}
+
+	/**
+	 * Returns the number of documents in the table. Every ID is less than this.
+	 *
+	 * @return the number of documents
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -40,24 +40,95 @@ public class Driver {
 		WorkQueue queue = null;
 		WebCrawler webCrawler;
 		SearchServlet servlet;
+		MappedInvertedIndex loaded = null;
 
 		/*
-		 * This if builds the InvertedIndex if has the flag "-path"
+		 * This if maps a saved index from the path with flag "-load"
+		 */
+		if (parse.hasFlag("-load")) {
+			Path path = parse.getPath("-load", Path.of("index.bin"));
+			try {
+				loaded = MappedInvertedIndex.open(path);
+			} catch (IOException e) {
+				System.out.println("Unable to load the index from path: " + path);
+			}
+		}
+
+		/*
+		 * This if picks how search results are scored with the flag "-scoring"
 		 */
-		if (parse.hasFlag("-threads") || parse.hasFlag("-url") || parse.hasFlag("-port")) {
+		Scorer scorer = Scorer.DEFAULT;
+		if (parse.hasFlag("-scoring")) {
 			try {
-				numThreads = Integer.parseInt(parse.getString("-threads"));
-				if (numThreads == 0) {
+				scorer = Scorer.forName(parse.getString("-scoring", "matches"));
+			} catch (IllegalArgumentException e) {
+				System.out.println("Unknown scoring " + parse.getString("-scoring") + ", scoring by matches instead");
+			}
+		}
+
+		/*
+		 * This if builds the InvertedIndex if has the flag "-path"
+		 */
+		if (parse.hasFlag("-threads") || parse.hasFlag("-url") || parse.hasFlag("-port") || parse.hasFlag("-pipeline")) {
+			/*
+			 * The flag "-threads virtual" starts a thread for every task instead of a
+			 * pool, with "-fetches" pages fetched at once
+			 */
+			if ("virtual".equalsIgnoreCase(parse.getString("-threads"))) {
+				int numFetches;
+				try {
+					numFetches = Integer.parseInt(parse.getString("-fetches"));
+					if (numFetches < 1) {
+						numFetches = WorkQueue.DEFAULT_FETCHES;
+					}
+				} catch (Exception e) {
+					numFetches = WorkQueue.DEFAULT_FETCHES;
+				}
+				queue = WorkQueue.perTask(Runtime.getRuntime().availableProcessors(), numFetches);
+				if (!queue.isVirtual()) {
+					System.out.println("Virtual threads are not available, using a pool of " + (queue.size() + numFetches) + " threads instead");
+				}
+			} else {
+				try {
+					numThreads = Integer.parseInt(parse.getString("-threads"));
+					if (numThreads == 0) {
+						numThreads = 5;
+					}
+				} catch (Exception e) {
 					numThreads = 5;
 				}
+				queue = new WorkQueue(numThreads);
+			}
+
+			int numShards;
+			try {
+				numShards = Integer.parseInt(parse.getString("-shards"));
+				if (numShards < 1) {
+					numShards = ThreadSafeInvertedIndex.DEFAULT_SHARDS;
+				}
 			} catch (Exception e) {
-				numThreads = 5;
+				numShards = ThreadSafeInvertedIndex.DEFAULT_SHARDS;
 			}
-			queue = new WorkQueue(numThreads);
 
-			ThreadSafeInvertedIndex threadSafe = new ThreadSafeInvertedIndex();
+			ThreadSafeInvertedIndex threadSafe = loaded == null ? new ThreadSafeInvertedIndex(numShards)
+					: new ThreadSafeInvertedIndex(loaded, numShards);
+			threadSafe.setScorer(scorer);
 			index = threadSafe;
-			indexBuilder = new ThreadSafeInvertedIndexBuilder(threadSafe, queue);
+			if (parse.hasFlag("-pipeline")) {
+				/*
+				 * The flag "-pipeline" takes the number of workers for reading,
+				 * tokenizing, stemming and indexing, like "1,2,2,1"
+				 */
+				try {
+					indexBuilder = new PipelinedInvertedIndexBuilder(threadSafe,
+							PipelinedInvertedIndexBuilder.parseWorkers(parse.getString("-pipeline", "1,2,2,1")));
+				} catch (IllegalArgumentException e) {
+					System.out.println("Unknown pipeline workers " + parse.getString("-pipeline") + ", using 1,2,2,1 instead");
+					indexBuilder = new PipelinedInvertedIndexBuilder(threadSafe);
+				}
+			} else {
+				indexBuilder = new ThreadSafeInvertedIndexBuilder(threadSafe, queue);
+			}
 			qBuilder = new ThreadSafeQueryBuilder(threadSafe, queue);
 
 			if (parse.hasFlag("-limit")) {
@@ -114,7 +185,16 @@ public class Driver {
 			}
 
 		} else {
-			index = new InvertedIndex();
+			if (loaded == null) {
+				index = new InvertedIndex();
+			} else if (parse.hasFlag("-path")) {
+				// a mapped index is read-only, so copy it before adding to it
+				index = new InvertedIndex();
+				index.addAll(loaded);
+			} else {
+				index = loaded;
+			}
+			index.setScorer(scorer);
 			indexBuilder = new InvertedIndexBuilder(index);
 			qBuilder = new QueryBuilder(index);
 
@@ -123,12 +203,31 @@ public class Driver {
 		if (parse.hasFlag("-path") && parse.getPath("-path") != null) {
 			Path path = parse.getPath("-path");
 			try {
-				if (Files.exists(path)) {
+				if (Files.exists(path) && parse.hasFlag("-manifest")) {
+					indexBuilder.build(path, parse.getPath("-manifest", Path.of("manifest.tsv")));
+				} else if (Files.exists(path)) {
 					indexBuilder.build(path);
 				}
 			} catch (IOException e) {
 				System.out.println("File is a directory");
 			}
+
+			if (indexBuilder instanceof PipelinedInvertedIndexBuilder) {
+				for (PipelineStage<?> stage : ((PipelinedInvertedIndexBuilder) indexBuilder).getStages()) {
+					System.out.println(stage);
+				}
+			}
+		}
+		/*
+		 * This if saves the index in binary form to the path with flag "-save"
+		 */
+		if (parse.hasFlag("-save")) {
+			Path path = parse.getPath("-save", Path.of("index.bin"));
+			try {
+				MappedInvertedIndex.write(index, path);
+			} catch (IOException e) {
+				System.out.println("Unable to save the index to path: " + path);
+			}
 		}
 		/*
 		 * This if writes the output file to the path with flag "-index"
@@ -159,7 +258,17 @@ public class Driver {
 			Path path = parse.getPath("-query");
 			try {
 
-				qBuilder.makeQueryFile(path, parse.hasFlag("-exact"));
+				int top;
+				try {
+					top = Integer.parseInt(parse.getString("-top"));
+					if (top < 1) {
+						top = InvertedIndex.ALL;
+					}
+				} catch (Exception e) {
+					top = InvertedIndex.ALL;
+				}
+
+				qBuilder.makeQueryFile(path, parse.hasFlag("-exact"), top);
 			} catch (IOException e) {
 				System.out.println("Unable to read the query file" + path.toString());
 
@@ -183,6 +292,9 @@ public class Driver {
 		if (queue != null) {
 			queue.shutdown();
 		}
+		if (index instanceof ThreadSafeInvertedIndex) {
+			((ThreadSafeInvertedIndex) index).shutdown();
+		}
 
 		// calculate time elapsed and output
 		Duration elapsed = Duration.between(start, Instant.now());
@@ -0,0 +1,40 @@
+/**
+ * Walks the documents of one word's postings from the highest impact down,
+ * where the impact of a document is how often the word appears in it over its
+ * length. A new iterator is positioned before the first document, so
+ * {@link #next()} must be called before anything else.
+ *
+ * @author Jaden
+ *
+ */
+public interface ImpactIterator {
+
+	/**
+	 * Moves to the next document.
+	 *
+	 * @return true if there was another document, false at the end
+	 */
+	public boolean next();
+
+	/**
+	 * Returns the ID of the current document.
+	 *
+	 * @return the document ID
+	 */
+	public int document();
+
+	/**
+	 * Returns how many times the word appears in the current document.
+	 *
+	 * @return the number of positions in the current document
+	 */
+	public int frequency();
+
+	/**
+	 * Returns an upper bound on the impact of the current document, which is
+	 * also a bound on the impact of every document after it.
+	 *
+	 * @return the highest frequency over length the rest of the postings can have
+	 */
+	public double impact();
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the local indexes built by worker tasks into one index, pairwise and
+ * in parallel, so that only the final result has to be added to a shared
+ * index.
+ *
+ * Every local index is built on its own document table, so filling one in
+ * never waits on a lock shared with other tasks. When a local index is added,
+ * its documents are moved onto one staging table for the batch, which takes one
+ * synchronized call per document rather than per word and lets two of them be
+ * merged with {@link InvertedIndex#merge(InvertedIndex, InvertedIndex)} by
+ * walking their sorted words once. The reducer works like a binary counter:
+ * level n holds at most one index made of 2^n local indexes, and a task that
+ * finds its level taken takes the index that is there, merges it with its own
+ * without holding any lock and carries the result up a level. Merges of
+ * different pairs therefore run at the same time on different workers, and each
+ * word is copied about log(n) times for n local indexes.
+ *
+ * @author Jaden
+ *
+ */
+public class IndexReducer {
+
+	/**
+	 * The document table the local indexes of the current batch are moved onto
+	 */
+	private DocumentTable documents;
+
+	/**
+	 * The index waiting at each level, or null if the level is empty
+	 */
+	private final ArrayList<InvertedIndex> levels;
+
+	/**
+	 * Constructor
+	 */
+	public IndexReducer() {
+		this.documents = new DocumentTable();
+		this.levels = new ArrayList<>();
+	}
+
+	/**
+	 * Returns a new, empty local index for a task to fill in and pass to
+	 * {@link #add(InvertedIndex)}.
+	 *
+	 * @return a new index with its own document table
+	 */
+	public InvertedIndex newLocal() {
+		return new InvertedIndex();
+	}
+
+	/**
+	 * Returns the staging document table of the current batch.
+	 *
+	 * @return the staging document table
+	 */
+	private synchronized DocumentTable staging() {
+		return documents;
+	}
+
+	/**
+	 * Adds a finished local index, merging it with waiting indexes for as long
+	 * as its level is taken. The local index must not be changed afterwards.
+	 *
+	 * @param local an index returned by {@link #newLocal()}
+	 * @throws IllegalStateException if the batch was drained while the index was
+	 *                               being added
+	 */
+	public void add(InvertedIndex local) {
+		DocumentTable table = staging();
+		if (local.getDocuments() != table) {
+			InvertedIndex staged = new InvertedIndex(table);
+			staged.addAll(local);
+			local = staged;
+		}
+
+		int level = 0;
+		while (true) {
+			InvertedIndex other;
+			synchronized (this) {
+				if (local.getDocuments() != documents) {
+					throw new IllegalStateException("The batch was drained while an index was being added.");
+				}
+
+				while (levels.size() <= level) {
+					levels.add(null);
+				}
+
+				other = levels.get(level);
+				if (other == null) {
+					levels.set(level, local);
+					return;
+				}
+				levels.set(level, null);
+			}
+
+			local = InvertedIndex.merge(other, local);
+			level++;
+		}
+	}
+
+	/**
+	 * Merges every waiting index into one and starts a new batch. Must only be
+	 * called once every task of the batch has called {@link #add(InvertedIndex)}.
+	 *
+	 * @return the merged index, which is empty if nothing was added
+	 */
+	public synchronized InvertedIndex drain() {
+		InvertedIndex merged = null;
+		for (InvertedIndex index : levels) {
+			if (index != null) {
+				merged = merged == null ? index : InvertedIndex.merge(index, merged);
+			}
+		}
+
+		if (merged == null) {
+			merged = new InvertedIndex(documents);
+		}
+		levels.clear();
+		documents = new DocumentTable();
+		return merged;
+	}
+
+	/**
+	 * Returns a collector for the local indexes of the parts of one file, which
+	 * adds the whole file to this reducer once every part is in.
+	 *
+	 * @param count the number of parts
+	 * @return the collector
+	 */
+	public Parts newParts(int count) {
+		return new Parts(count);
+	}
+
+	/**
+	 * The local indexes of the parts of one file, each with positions counted
+	 * from the start of its part. Parts may finish in any order and on any
+	 * thread; the last one to finish puts them together in order with
+	 * {@link InvertedIndex#addShifted(InvertedIndex, int)} and adds the result.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public class Parts {
+
+		/**
+		 * The local index of each part
+		 */
+		private final InvertedIndex[] locals;
+
+		/**
+		 * The number of words in each part
+		 */
+		private final int[] counts;
+
+		/**
+		 * The number of parts not finished yet
+		 */
+		private final AtomicInteger remaining;
+
+		/**
+		 * Whether any part failed, in which case the file is left out
+		 */
+		private volatile boolean failed;
+
+		/**
+		 * Constructor
+		 *
+		 * @param count the number of parts
+		 */
+		private Parts(int count) {
+			this.locals = new InvertedIndex[count];
+			this.counts = new int[count];
+			this.remaining = new AtomicInteger(count);
+			this.failed = false;
+		}
+
+		/**
+		 * Returns the number of parts.
+		 *
+		 * @return the part count
+		 */
+		public int size() {
+			return locals.length;
+		}
+
+		/**
+		 * Records a finished part, and adds the whole file once every part is in.
+		 * The atomic countdown makes the other parts visible to the thread that
+		 * finishes last.
+		 *
+		 * @param part  the part, from 0
+		 * @param local its index from {@link IndexReducer#newLocal()}, or null if
+		 *              it failed
+		 * @param count its number of words
+		 * @return false if this was the last part and the file was left out
+		 *         because a part failed, otherwise true
+		 */
+		public boolean finished(int part, InvertedIndex local, int count) {
+			if (local == null) {
+				failed = true;
+			}
+			locals[part] = local;
+			counts[part] = count;
+			if (remaining.decrementAndGet() > 0) {
+				return true;
+			}
+
+			if (failed) {
+				return false;
+			}
+			InvertedIndex whole = new InvertedIndex(staging());
+			int offset = 0;
+			for (int i = 0; i < locals.length; i++) {
+				whole.addShifted(locals[i], offset);
+				offset += counts[i];
+			}
+			add(whole);
+			return true;
+		}
+	}
+}
@@ -1,34 +1,88 @@
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Jnhamid This is the class for our Custom Data Structure
  */
 public class InvertedIndex {
 
+	/**
+	 * Passed as the number of results to a search to get every result
+	 */
+	public static final int ALL = Integer.MAX_VALUE;
+
 	/**
 	 * Private Identifier for our Custom data structure
 	 */
-	private final TreeMap<String, TreeMap<String, TreeSet<Integer>>> index;
+	private final TreeMap<String, Postings> index;
+
+	/**
+	 * The document IDs used by the postings
+	 */
+	private final DocumentTable documents;
+
+	/**
+	 * Number of changes made to the index
+	 */
+	private long version;
+
+	/**
+	 * The highest score any one document gets from each word searched so far
+	 */
+	private final ConcurrentHashMap<Integer, Double> bounds;
+
+	/**
+	 * The version of the index the bounds were found for
+	 */
+	private volatile long boundsVersion;
+
+	/**
+	 * The words in sorted order, numbered by term ID, for the current version
+	 */
+	private volatile Dictionary dictionary;
+
 	/**
-	 * Private Identifier for count data structure
+	 * How searches score documents
 	 */
-	private final TreeMap<String, Integer> counts;
+	private volatile Scorer scorer;
 
 	/**
 	 * Initialize maps
 	 */
 	public InvertedIndex() {
-		index = new TreeMap<>();
-		counts = new TreeMap<>();
+		this(new DocumentTable());
+	}
+
+	/**
+	 * Initialize maps using an existing document table, so that several indexes
+	 * agree on document IDs
+	 *
+	 * @param documents the document table to use
+	 */
+	public InvertedIndex(DocumentTable documents) {
+		this.index = new TreeMap<>();
+		this.documents = documents;
+		this.version = 0;
+		this.bounds = new ConcurrentHashMap<>();
+		this.boundsVersion = 0;
+		this.scorer = Scorer.DEFAULT;
 	}
 
 	/**
@@ -40,9 +94,9 @@ public class InvertedIndex {
 	public class Result implements Comparable<Result> {
 
 		/**
-		 * name of file
+		 * document ID of file
 		 */
-		private final String fileName;
+		private final int document;
 
 		/**
 		 * count
@@ -60,9 +114,32 @@ public class InvertedIndex {
 		 * @param fileName The location of Result
 		 */
 		public Result(String fileName) {
+			this(documents.add(fileName));
+		}
+
+		/**
+		 * constructor
+		 *
+		 * @param document The document ID of Result
+		 */
+		private Result(int document) {
 			this.score = 0;
 			this.count = 0;
-			this.fileName = fileName;
+			this.document = document;
+
+		}
+
+		/**
+		 * constructor
+		 *
+		 * @param document The document ID of Result
+		 * @param count    the number of times the queries appear in the file
+		 * @param score    the score of the file
+		 */
+		private Result(int document, int count, double score) {
+			this.count = count;
+			this.score = score;
+			this.document = document;
 
 		}
 
@@ -73,16 +150,7 @@ public class InvertedIndex {
 		 */
 		@Override
 		public int compareTo(Result o) {
-			double scoreDifference = this.score - o.score;
-			int countDifference = this.count - o.count;
-			if (scoreDifference != 0) {
-				return scoreDifference > 0 ? -1 : 1;
-			} else if (countDifference != 0) {
-				return countDifference > 0 ? -1 : 1;
-
-			} else {
-				return (this.fileName.toLowerCase().compareTo(o.fileName.toLowerCase()));
-			}
+			return compare(this.score, this.count, this.getFileName(), o);
 
 		}
 
@@ -93,7 +161,7 @@ public class InvertedIndex {
 		 * @return true if file name is the same
 		 */
 		public boolean sameFileName(Result other) {
-			return this.fileName.compareTo(other.fileName) == 0;
+			return this.getFileName().compareTo(other.getFileName()) == 0;
 		}
 
 		/**
@@ -114,23 +182,13 @@ public class InvertedIndex {
 			return this.count;
 		}
 
-		/**
-		 * setter for count
-		 *
-		 * @param word the word to be updated
-		 */
-		private void update(String word) {
-			this.count += index.get(word).get(fileName).size();
-			this.score = (double) this.count / counts.get(this.fileName);
-		}
-
 		/**
 		 * getter for fileName
 		 *
 		 * @return fileName
 		 */
 		public String getFileName() {
-			return fileName;
+			return documents.getLocation(document);
 		}
 
 		/**
@@ -139,7 +197,7 @@ public class InvertedIndex {
 		 * @return String for writing
 		 */
 		public String getFileNameString() {
-			return ("\"where\": " + "\"" + this.fileName + "\",");
+			return ("\"where\": " + "\"" + SimpleJsonWriter.escape(getFileName()) + "\",");
 		}
 
 		/**
@@ -179,13 +237,10 @@ public class InvertedIndex {
 	 *
 	 */
 	public void addElement(String word, String file, Integer pos) throws IOException {
-		index.putIfAbsent(word, new TreeMap<String, TreeSet<Integer>>());
-		index.get(word).putIfAbsent(file, new TreeSet<Integer>());
-		index.get(word).get(file).add(pos);
-		counts.putIfAbsent(file, pos);
-		if (pos > counts.get(file)) {
-			counts.put(file, pos);
-		}
+		int document = documents.add(file);
+		index.computeIfAbsent(word, key -> new Postings()).add(document).add(pos);
+		documents.updateCount(document, pos);
+		version++;
 
 	}
 
@@ -195,213 +250,1892 @@ public class InvertedIndex {
 	 * @param other the InvertedIndex to be added
 	 */
 	public void addAll(InvertedIndex other) {
-		for (String word : other.index.keySet()) {
-			if (this.index.containsKey(word) == false) {
-				this.index.put(word, other.index.get(word));
+		int[] remap = null;
+		if (other.documents != this.documents) {
+			remap = new int[other.documents.size()];
+			for (int document = 0; document < remap.length; document++) {
+				remap[document] = this.documents.add(other.documents.getLocation(document));
+			}
+		}
+
+		for (String word : other.getWords()) {
+			Postings postings = this.index.get(word);
+			if (postings == null && remap == null) {
+				this.index.put(word, other.getPostings(word));
 			} else {
-				for (String path : other.index.get(word).keySet()) {
-					if (!this.index.get(word).containsKey(path)) {
-						this.index.get(word).put(path, other.index.get(word).get(path));
-					} else {
-						this.index.get(word).get(path).addAll(other.index.get(word).get(path));
-					}
+				if (postings == null) {
+					postings = new Postings();
+					this.index.put(word, postings);
 				}
+				postings.addAll(other.getPostings(word), remap);
 			}
 		}
 
-		for (String word : other.counts.keySet()) {
-			if (this.counts.containsKey(word) == false) {
-				this.counts.put(word, other.counts.get(word));
-			} else {
-				this.counts.put(word, Math.max(this.counts.get(word), other.counts.get(word)));
+		if (remap != null) {
+			for (int document = 0; document < remap.length; document++) {
+				this.documents.updateCount(remap[document], other.documents.getCount(document));
 			}
 		}
+		version++;
 
 	}
 
 	/**
-	 * A method that calls exactSearch or paritalSearch
+	 * Merges two indexes that share a document table into a new index, walking
+	 * both sorted word lists once. Neither index is changed, and their position
+	 * lists are shared with the result rather than copied, so both must be
+	 * treated as read-only afterwards.
 	 *
-	 * @param queries the queries being searched
-	 * @param exact   whether exactsearch or not
-	 * @return an arraylist of search results
+	 * @param first  the first index
+	 * @param second the second index
+	 * @return a new index holding the words of both
+	 * @throws IllegalArgumentException if the indexes use different document
+	 *                                  tables
 	 */
-	public ArrayList<Result> search(Collection<String> queries, boolean exact) {
-		return exact ? exactSearch(queries) : partialSearch(queries);
+	public static InvertedIndex merge(InvertedIndex first, InvertedIndex second) {
+		if (first.documents != second.documents) {
+			throw new IllegalArgumentException("Only indexes that share a document table can be merged.");
+		}
+
+		InvertedIndex merged = new InvertedIndex(first.documents);
+		Iterator<String> left = first.getWords().iterator();
+		Iterator<String> right = second.getWords().iterator();
+		String a = left.hasNext() ? left.next() : null;
+		String b = right.hasNext() ? right.next() : null;
+
+		while (a != null || b != null) {
+			int compare = a == null ? 1 : b == null ? -1 : a.compareTo(b);
+			if (compare < 0) {
+				merged.index.put(a, first.getPostings(a));
+				a = left.hasNext() ? left.next() : null;
+			} else if (compare > 0) {
+				merged.index.put(b, second.getPostings(b));
+				b = right.hasNext() ? right.next() : null;
+			} else {
+				merged.index.put(a, Postings.merge(first.getPostings(a), second.getPostings(b)));
+				a = left.hasNext() ? left.next() : null;
+				b = right.hasNext() ? right.next() : null;
+			}
+		}
+		return merged;
 	}
 
 	/**
-	 * Does exactSearch of a Collection of quieries
+	 * Adds the words of another index, moving their positions up by an offset.
+	 * Used to put back together a file whose parts were indexed separately with
+	 * positions counted from the start of each part, by adding the parts in order
+	 * with the number of words before each one. Document IDs are mapped by
+	 * location if the indexes use different document tables.
 	 *
-	 * @param queries the queries being searched
-	 * @return an arraylist of results
+	 * @param other  the index of the next part
+	 * @param offset the number of words before that part
+	 * @throws IllegalArgumentException if a moved position does not come after
+	 *                                  the positions already here
 	 */
-	public ArrayList<Result> exactSearch(Collection<String> queries) {
-		ArrayList<Result> results = new ArrayList<>();
-		HashMap<String, Result> lookup = new HashMap<>();
+	public void addShifted(InvertedIndex other, int offset) {
+		int[] remap = null;
+		if (other.documents != this.documents) {
+			remap = new int[other.documents.size()];
+			for (int document = 0; document < remap.length; document++) {
+				remap[document] = this.documents.add(other.documents.getLocation(document));
+			}
+		}
 
-		for (String query : queries) {
-			if (index.containsKey(query)) {
-				searchHelper(results, query, lookup);
+		int[] counts = new int[documents.size()];
+		for (String word : other.getWords()) {
+			Postings theirs = other.getPostings(word);
+			Postings postings = this.index.computeIfAbsent(word, key -> new Postings());
+			for (int i = 0; i < theirs.size(); i++) {
+				int document = remap == null ? theirs.document(i) : remap[theirs.document(i)];
+				PostingList positions = theirs.positions(i);
+				postings.add(document).addAll(positions, offset);
+				counts[document] = Math.max(counts[document], positions.last() + offset);
 			}
 		}
-		Collections.sort(results);
-		return results;
+
+		for (int document = 0; document < counts.length; document++) {
+			if (counts[document] > 0) {
+				documents.updateCount(document, counts[document]);
+			}
+		}
+		version++;
 	}
 
 	/**
-	 * Does partialSearch of a Collection of quieries
+	 * Removes documents and all of their positions from the index, and resets
+	 * their word counts. Takes one pass over the words no matter how many
+	 * documents are removed, so remove documents together where possible.
 	 *
-	 * @param queries the queries being searched
-	 * @return an arraylist of results
+	 * @param locations the locations of the documents to remove
 	 */
-	public ArrayList<Result> partialSearch(Collection<String> queries) {
-		ArrayList<Result> results = new ArrayList<>();
-		HashMap<String, Result> lookup = new HashMap<>();
+	public void removeDocuments(Collection<String> locations) {
+		BitSet removed = toDocumentIds(locations);
+		remove(removed);
+		for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+			documents.clearCount(id);
+		}
+		version++;
+	}
 
-		for (String query : queries) {
-			for (String word : this.index.tailMap(query).keySet()) {
-				if (word.startsWith(query)) {
-					searchHelper(results, word, lookup);
+	/**
+	 * Deletes a document without touching its postings. The document is hidden
+	 * from searches and output right away, and its postings are dropped by the
+	 * next {@link #reclaimDeleted()}.
+	 *
+	 * @param location the location of the document
+	 * @return true if the document was in the index
+	 */
+	public boolean deleteDocument(String location) {
+		version++;
+		return documents.delete(location) >= 0;
+	}
+
+	/**
+	 * Replaces a document with new contents. The old contents are deleted as by
+	 * {@link #deleteDocument(String)} and the new ones are added under a new
+	 * document ID, so this costs about as much as adding the new contents.
+	 *
+	 * @param location the location of the document
+	 * @param contents an index holding only the new contents of the document
+	 */
+	public void replaceDocument(String location, InvertedIndex contents) {
+		deleteDocument(location);
+		addAll(contents);
+	}
+
+	/**
+	 * Replaces every document of another index with its contents there, as by
+	 * {@link #replaceDocument(String, InvertedIndex)}.
+	 *
+	 * @param contents the new contents of each of its documents
+	 */
+	public void replaceDocuments(InvertedIndex contents) {
+		DocumentTable table = contents.getDocuments();
+		for (int id = 0; id < table.size(); id++) {
+			deleteDocument(table.getLocation(id));
+		}
+		addAll(contents);
+	}
+
+	/**
+	 * Drops the postings of deleted documents, reclaiming their space.
+	 */
+	public void reclaimDeleted() {
+		if (documents.hasDeleted()) {
+			remove(documents.getDeleted());
+			version++;
+		}
+	}
+
+	/**
+	 * Removes documents from the postings of every word in one pass, dropping
+	 * words that are left with no documents.
+	 *
+	 * @param removed the IDs of the documents to remove
+	 */
+	private void remove(BitSet removed) {
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		Iterator<Map.Entry<String, Postings>> entries = index.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<String, Postings> entry = entries.next();
+			if (entry.getValue().containsAny(removed)) {
+				Postings remaining = Postings.without(entry.getValue(), removed);
+				if (remaining.size() == 0) {
+					entries.remove();
 				} else {
-					break;
+					entry.setValue(remaining);
 				}
 			}
 		}
-		Collections.sort(results);
-		return results;
-
 	}
 
 	/**
-	 * A helper for search
+	 * Copies an index without some documents. Neither index is changed, and
+	 * position lists are shared with the result rather than copied.
 	 *
-	 * @param results the Arraylist of results
-	 * @param word    the word being searched
-	 * @param lookup  lookup checker for duplicates
+	 * @param index     the index to copy
+	 * @param documents the IDs of the documents to leave out
+	 * @return a new index, sharing the document table, without those documents
 	 */
-	private void searchHelper(ArrayList<Result> results, String word, Map<String, Result> lookup) {
-		for (String fileName : this.index.get(word).keySet()) {
-			if (!lookup.containsKey(fileName)) {
-				Result result = new Result(fileName);
-				lookup.put(fileName, result);
-				results.add(result);
+	public static InvertedIndex without(InvertedIndex index, BitSet documents) {
+		InvertedIndex copy = new InvertedIndex(index.documents);
+		for (String word : index.getWords()) {
+			Postings postings = index.getPostings(word);
+			if (postings.containsAny(documents)) {
+				postings = Postings.without(postings, documents);
 			}
+			if (postings.size() > 0) {
+				copy.index.put(word, postings);
+			}
+		}
+		return copy;
+	}
 
-			lookup.get(fileName).update(word);
+	/**
+	 * Looks up the IDs of document locations, skipping locations that are not in
+	 * the document table.
+	 *
+	 * @param locations the locations
+	 * @return the document IDs as a new set
+	 */
+	protected BitSet toDocumentIds(Collection<String> locations) {
+		BitSet ids = new BitSet(documents.size());
+		for (String location : locations) {
+			int id = documents.getId(location);
+			if (id >= 0) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
 
+	/**
+	 * Returns the IDs of every document with at least one word in this index,
+	 * leaving out deleted documents.
+	 *
+	 * @return the document IDs as a new set
+	 */
+	public BitSet getDocumentIds() {
+		BitSet ids = new BitSet(documents.size());
+		for (String word : getWords()) {
+			PostingsIterator postings = getPostingsIterator(word);
+			while (postings.next()) {
+				ids.set(postings.document());
+			}
 		}
+		ids.andNot(documents.getDeleted());
+		return ids;
+	}
+
+	/**
+	 * A method that calls exactSearch or paritalSearch
+	 *
+	 * @param queries the queries being searched
+	 * @param exact   whether exactsearch or not
+	 * @return an arraylist of search results
+	 */
+	public ArrayList<Result> search(Collection<String> queries, boolean exact) {
+		return search(queries, exact, ALL);
+	}
 
+	/**
+	 * A method that calls exactSearch or paritalSearch and keeps only the best
+	 * results
+	 *
+	 * @param queries the queries being searched
+	 * @param exact   whether exactsearch or not
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @return an arraylist of the best k search results, in order
+	 */
+	public ArrayList<Result> search(Collection<String> queries, boolean exact, int k) {
+		return exact ? exactSearch(queries, k) : partialSearch(queries, k);
 	}
 
 	/**
-	 * will output to file using method in SimpleJsonWriter
+	 * Does exactSearch of a Collection of quieries
 	 *
-	 * @param outFile file name of file that is getting written
-	 * @throws IOException
+	 * @param queries the queries being searched
+	 * @return an arraylist of results
 	 */
-	public void printIndex(Path outFile) throws IOException {
-		SimpleJsonWriter.asDoubleNested(index, outFile);
+	public ArrayList<Result> exactSearch(Collection<String> queries) {
+		return exactSearch(queries, ALL);
 	}
 
 	/**
-	 * getter for count
+	 * Does exactSearch of a Collection of quieries and keeps only the best
+	 * results
 	 *
-	 * @return count as a unmodifiableMap
+	 * @param queries the queries being searched
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @return an arraylist of the best k results, in order
 	 */
-	public Map<String, Integer> getCount() {
-		return Collections.unmodifiableMap(counts);
+	public ArrayList<Result> exactSearch(Collection<String> queries, int k) {
+		return exactSearch(List.of(this), queries, k, scorer);
 	}
 
 	/**
-	 * checks to see if word is in index
+	 * Does exactSearch of a Collection of quieries over several indexes that
+	 * share a document table. Each document must be in at most one index.
 	 *
-	 * @param word word that is getting checked
-	 * @return if index has word
+	 * @param indexes the indexes being searched
+	 * @param queries the queries being searched
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @param scorer  how to score the results
+	 * @return an arraylist of the best k results, in order
 	 */
-	public boolean contains(String word) {
-		return index.containsKey(word);
+	protected static ArrayList<Result> exactSearch(List<? extends InvertedIndex> indexes, Collection<String> queries,
+			int k, Scorer scorer) {
+		if (indexes.isEmpty()) {
+			return new ArrayList<>();
+		}
+		InvertedIndex first = indexes.get(0);
+		if (k != ALL) {
+			Terms terms = new Terms();
+			collect: for (String query : queries) {
+				for (InvertedIndex index : indexes) {
+					int term = index.getTermId(query);
+					if (term >= 0 && !terms.add(index, term)) {
+						break collect;
+					}
+				}
+			}
+			if (!terms.isFull()) {
+				ArrayList<Impacts> impacts = terms.impacts(indexes, scorer);
+				if (impacts != null) {
+					return first.impactResults(impacts, k, scorer);
+				}
+				return first.prunedResults(terms.cursors(indexes, scorer), k, scorer);
+			}
+		}
+		Matches matches = Matches.acquire(first.getDocuments().size(), scorer);
+		try {
+			addMatches(matches, indexes, queries, true, null);
+			return first.results(matches, k);
+		} finally {
+			matches.release();
+		}
 	}
 
 	/**
-	 * checks if the map has the specific word and if word contain path.
+	 * Does partialSearch of a Collection of quieries
 	 *
-	 * @param word word that is getting checked
-	 * @param path path that is getting checked
-	 * @return if has word and path
+	 * @param queries the queries being searched
+	 * @return an arraylist of results
 	 */
-	public boolean contains(String word, String path) {
-		return contains(word) && index.get(word).containsKey(path);
+	public ArrayList<Result> partialSearch(Collection<String> queries) {
+		return partialSearch(queries, ALL);
 	}
 
 	/**
-	 * checks if the map contains the specific word, path and index.
+	 * Does partialSearch of a Collection of quieries and keeps only the best
+	 * results
 	 *
-	 * @param word    word that is getting checked
-	 * @param path    path that is getting checked
-	 * @param postion postion that is getting checked
-	 * @return if has word and path at postion
+	 * @param queries the queries being searched
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @return an arraylist of the best k results, in order
 	 */
-	public boolean contains(String word, String path, int postion) {
-		return contains(word, path) && index.get(word).get(path).contains(postion);
+	public ArrayList<Result> partialSearch(Collection<String> queries, int k) {
+		return partialSearch(List.of(this), queries, k, scorer);
 	}
 
 	/**
-	 * getter for set of words
+	 * Does partialSearch of a Collection of quieries over several indexes that
+	 * share a document table. Each document must be in at most one index.
 	 *
-	 * @return an unmodifiable set of words
+	 * @param indexes the indexes being searched
+	 * @param queries the queries being searched
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @param scorer  how to score the results
+	 * @return an arraylist of the best k results, in order
 	 */
-	public Set<String> getWords() {
-		return Collections.unmodifiableSet(index.keySet());
+	protected static ArrayList<Result> partialSearch(List<? extends InvertedIndex> indexes,
+			Collection<String> queries, int k, Scorer scorer) {
+		if (indexes.isEmpty()) {
+			return new ArrayList<>();
+		}
+		InvertedIndex first = indexes.get(0);
+		if (k != ALL) {
+			Terms terms = new Terms();
+			collect: for (String query : queries) {
+				for (InvertedIndex index : indexes) {
+					int[] range = index.getTermRange(query);
+					for (int term = range[0]; term < range[1]; term++) {
+						if (!terms.add(index, term)) {
+							break collect;
+						}
+					}
+				}
+			}
+			if (!terms.isFull()) {
+				return first.prunedResults(terms.cursors(indexes, scorer), k, scorer);
+			}
+		}
+		Matches matches = Matches.acquire(first.getDocuments().size(), scorer);
+		try {
+			addMatches(matches, indexes, queries, false, null);
+			return first.results(matches, k);
+		} finally {
+			matches.release();
+		}
 
 	}
 
 	/**
-	 * getter for set of locations
+	 * Searches for a parsed query line, keeping only the best results. A query
+	 * without phrases or a condition is searched like its words. Otherwise the
+	 * documents that meet the condition are found first, and the matches of the
+	 * words and phrases are only added up for them.
 	 *
-	 * @param word key value for locations
-	 * @return an unmodifiable set of Locations
+	 * @param query the query
+	 * @param exact whether the words are searched exactly or as prefixes; the
+	 *              words of phrases are always searched exactly
+	 * @param k     the most results to return, or {@link #ALL}
+	 * @return an arraylist of the best k results, in order
 	 */
-	public Set<String> getLocations(String word) {
-		if (contains(word)) {
-			return Collections.unmodifiableSet(index.get(word).keySet());
+	public ArrayList<Result> search(SearchQuery query, boolean exact, int k) {
+		SearchQuery.Condition condition = query.getCondition();
+		if (condition == null && !query.hasPhrases()) {
+			return search(query.getWords(), exact, k);
 		}
-		return Collections.emptySet();
 
+		BitSet candidates = null;
+		if (condition != null) {
+			candidates = matching(condition, null, exact);
+			if (candidates.isEmpty()) {
+				return new ArrayList<>();
+			}
+		}
+
+		Matches matches = Matches.acquire(documents.size(), scorer);
+		try {
+			addMatches(matches, getSearchIndexes(), query.getWords(), exact, candidates);
+			for (SearchQuery.Phrase phrase : query.getPhrases()) {
+				addMatches(matches, phrase, candidates);
+			}
+			return results(matches, k);
+		} finally {
+			matches.release();
+		}
 	}
 
 	/**
-	 * getter for set of postions
+	 * Returns the indexes that hold the words of this index, for searches that
+	 * look words up one index at a time.
 	 *
-	 * @param word
-	 * @param location
-	 * @return an unmodifiable set of Positions
+	 * @return the indexes to search
 	 */
-	public Set<Integer> getPositions(String word, String location) {
-		if (contains(word, location)) {
-			return Collections.unmodifiableSet(index.get(word).get(location));
+	protected List<? extends InvertedIndex> getSearchIndexes() {
+		return List.of(this);
+	}
+
+	/**
+	 * Finds the documents that meet a condition. The children of an AND are
+	 * evaluated from the one with the fewest documents up, each only over the
+	 * documents that met the ones before it, and a NOT inside an AND only removes
+	 * documents from what is left. Evaluation stops as soon as nothing is left.
+	 *
+	 * @param condition  the condition
+	 * @param candidates the only documents to consider, or null for all of them
+	 * @param exact      whether words are searched exactly or as prefixes
+	 * @return the IDs of the documents among the candidates that meet the
+	 *         condition, as a new set
+	 */
+	private BitSet matching(SearchQuery.Condition condition, BitSet candidates, boolean exact) {
+		switch (condition.getOperator()) {
+		case WORD: {
+			Matches matches = Matches.acquire(documents.size(), scorer);
+			try {
+				addMatches(matches, getSearchIndexes(), List.of(condition.getWord()), exact, candidates);
+				return matches.toBitSet();
+			} finally {
+				matches.release();
+			}
 		}
-		return Collections.emptySet();
+		case PHRASE: {
+			Matches matches = Matches.acquire(documents.size(), scorer);
+			try {
+				addMatches(matches, condition.getPhrase(), candidates);
+				return matches.toBitSet();
+			} finally {
+				matches.release();
+			}
+		}
+		case OR: {
+			BitSet any = new BitSet(documents.size());
+			for (SearchQuery.Condition child : condition.getChildren()) {
+				any.or(matching(child, candidates, exact));
+			}
+			return any;
+		}
+		case NOT: {
+			BitSet none = candidates == null ? liveDocuments() : (BitSet) candidates.clone();
+			none.andNot(matching(condition.getChildren().get(0), candidates, exact));
+			return none;
+		}
+		default: {
+			ArrayList<SearchQuery.Condition> required = new ArrayList<>();
+			ArrayList<SearchQuery.Condition> excluded = new ArrayList<>();
+			for (SearchQuery.Condition child : condition.getChildren()) {
+				if (child.getOperator() == SearchQuery.Condition.Operator.NOT) {
+					excluded.add(child.getChildren().get(0));
+				} else {
+					required.add(child);
+				}
+			}
+
+			HashMap<SearchQuery.Condition, Integer> costs = new HashMap<>();
+			for (SearchQuery.Condition child : required) {
+				costs.put(child, cost(child, exact));
+			}
+			required.sort(Comparator.comparing(costs::get));
 
+			BitSet all = candidates;
+			for (SearchQuery.Condition child : required) {
+				all = matching(child, all, exact);
+				if (all.isEmpty()) {
+					return all;
+				}
+			}
+
+			all = all == null ? liveDocuments() : all == candidates ? (BitSet) all.clone() : all;
+			for (SearchQuery.Condition child : excluded) {
+				all.andNot(matching(child, all, exact));
+				if (all.isEmpty()) {
+					break;
+				}
+			}
+			return all;
+		}
+		}
 	}
 
 	/**
-	 * returns how many words is in inverted index.
+	 * Estimates how many documents meet a condition, without reading any
+	 * postings.
 	 *
-	 * @return size of inverted index.
+	 * @param condition the condition
+	 * @param exact     whether words are searched exactly or as prefixes
+	 * @return at least the number of documents that meet the condition
 	 */
-	public int size() {
-		return index.size();
+	private int cost(SearchQuery.Condition condition, boolean exact) {
+		switch (condition.getOperator()) {
+		case WORD: {
+			long cost = 0;
+			for (InvertedIndex index : getSearchIndexes()) {
+				int[] range = terms(index, condition.getWord(), exact);
+				for (int term = range[0]; term < range[1]; term++) {
+					PostingsIterator postings = index.getPostingsIterator(term);
+					cost += postings == null ? 0 : postings.size();
+				}
+			}
+			return (int) Math.min(cost, documents.size());
+		}
+		case PHRASE: {
+			int cost = documents.size();
+			for (String word : condition.getPhrase().getWords()) {
+				PostingsIterator postings = getPostingsIterator(word);
+				cost = Math.min(cost, postings == null ? 0 : postings.size());
+			}
+			return cost;
+		}
+		case OR: {
+			long cost = 0;
+			for (SearchQuery.Condition child : condition.getChildren()) {
+				cost += cost(child, exact);
+			}
+			return (int) Math.min(cost, documents.size());
+		}
+		case AND: {
+			int cost = documents.size();
+			for (SearchQuery.Condition child : condition.getChildren()) {
+				cost = Math.min(cost, cost(child, exact));
+			}
+			return cost;
+		}
+		default:
+			return documents.size();
+		}
 	}
 
 	/**
-	 * returns how many paths are found in word.
+	 * Returns every document ID in use that is not deleted.
 	 *
-	 * @param word to check
-	 * @return amount of paths, return 0 if not found
+	 * @return the document IDs as a new set
 	 */
-	public int size(String word) {
-		return contains(word) ? index.get(word).size() : 0;
+	private BitSet liveDocuments() {
+		BitSet live = new BitSet(documents.size());
+		live.set(0, documents.size());
+		live.andNot(documents.getDeleted());
+		return live;
+	}
+
+	/**
+	 * Returns the term IDs a word of a query stands for in an index.
+	 *
+	 * @param index the index
+	 * @param word  the word
+	 * @param exact whether to search the word exactly or as a prefix
+	 * @return the first and one past the last term ID
+	 */
+	private static int[] terms(InvertedIndex index, String word, boolean exact) {
+		if (!exact) {
+			return index.getTermRange(word);
+		}
+		int term = index.getTermId(word);
+		return term < 0 ? new int[] { 0, 0 } : new int[] { term, term + 1 };
+	}
+
+	/**
+	 * Adds up the matches of words over several indexes that share a document
+	 * table, in only some of the documents.
+	 *
+	 * @param matches    the matches so far
+	 * @param indexes    the indexes being searched
+	 * @param queries    the words or prefixes being searched
+	 * @param exact      whether to search the words exactly or as prefixes
+	 * @param candidates the only documents to add matches of, or null for all
+	 */
+	private static void addMatches(Matches matches, List<? extends InvertedIndex> indexes,
+			Collection<String> queries, boolean exact, BitSet candidates) {
+		boolean counting = matches.scorer.usesDocumentFrequency();
+		for (String query : queries) {
+			for (InvertedIndex index : indexes) {
+				int[] range = terms(index, query, exact);
+				for (int term = range[0]; term < range[1]; term++) {
+					int frequency = counting ? documentFrequency(indexes, index.getTerm(term)) : 0;
+					index.searchHelper(matches, term, candidates, frequency);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of documents with a word over several indexes that
+	 * share a document table.
+	 *
+	 * @param indexes the indexes
+	 * @param word    the word
+	 * @return the document frequency of the word
+	 */
+	private static int documentFrequency(List<? extends InvertedIndex> indexes, String word) {
+		int frequency = 0;
+		for (InvertedIndex index : indexes) {
+			int term = index.getTermId(word);
+			PostingsIterator postings = term < 0 ? null : index.getPostingsIterator(term);
+			if (postings != null) {
+				frequency += postings.size();
+			}
+		}
+		return frequency;
+	}
+
+	/**
+	 * Adds the matches of a phrase. The documents that have every word are found
+	 * by leapfrogging: each word's postings gallop ahead to the largest document
+	 * seen so far until they all agree. Only those documents have their
+	 * positions compared.
+	 *
+	 * @param matches    the matches so far
+	 * @param phrase     the phrase
+	 * @param candidates the only documents to add matches of, or null for all
+	 */
+	private void addMatches(Matches matches, SearchQuery.Phrase phrase, BitSet candidates) {
+		List<String> words = phrase.getWords();
+		PostingsIterator[] postings = new PostingsIterator[words.size()];
+		for (int i = 0; i < postings.length; i++) {
+			postings[i] = getPostingsIterator(words.get(i));
+			if (postings[i] == null || !postings[i].next()) {
+				return;
+			}
+		}
+
+		int frequency = Integer.MAX_VALUE;
+		for (PostingsIterator iterator : postings) {
+			frequency = Math.min(frequency, iterator.size());
+		}
+
+		PostingList[] positions = new PostingList[postings.length];
+		int document = postings[0].document();
+		int agreed = 1;
+		int i = 1;
+		while (true) {
+			PostingsIterator current = postings[i];
+			if (current.document() < document && !current.advance(document)) {
+				return;
+			}
+
+			if (current.document() > document) {
+				document = current.document();
+				agreed = 1;
+			} else if (++agreed == postings.length) {
+				if (!documents.isDeleted(document) && (candidates == null || candidates.get(document))) {
+					for (int j = 0; j < postings.length; j++) {
+						positions[j] = postings[j].positions();
+					}
+					int count = phrase.count(positions);
+					if (count > 0) {
+						matches.add(document, count, frequency, documents);
+					}
+				}
+
+				if (!current.next()) {
+					return;
+				}
+				document = current.document();
+				agreed = 1;
+			}
+			i = (i + 1) % postings.length;
+		}
+	}
+
+	/**
+	 * A helper for search
+	 *
+	 * @param matches    the matches so far
+	 * @param term       the term ID of the word being searched
+	 * @param candidates the only documents to add matches of, or null for all
+	 * @param frequency  the number of documents with the word in every index
+	 *                   searched, or 0 if the scorer does not use it
+	 */
+	private void searchHelper(Matches matches, int term, BitSet candidates, int frequency) {
+		PostingsIterator postings = getPostingsIterator(term);
+		if (postings == null) {
+			return;
+		}
+
+		int document = next(postings, 0, candidates);
+		while (document >= 0) {
+			if (!documents.isDeleted(document)) {
+				matches.add(document, postings.frequency(), frequency, documents);
+			}
+			document = next(postings, document + 1, candidates);
+		}
+	}
+
+	/**
+	 * Moves postings to the next document that is a candidate. With candidates,
+	 * the postings gallop to each candidate in turn, and the candidates skip
+	 * ahead to each document the postings land on, so both are passed over
+	 * quickly when they have little in common.
+	 *
+	 * @param postings   the postings
+	 * @param target     the smallest document ID to move to, which must be after
+	 *                   the current document
+	 * @param candidates the documents to stop at, or null to stop at the next one
+	 * @return the document moved to, or -1 at the end
+	 */
+	private static int next(PostingsIterator postings, int target, BitSet candidates) {
+		if (candidates == null) {
+			return postings.next() ? postings.document() : -1;
+		}
+
+		target = candidates.nextSetBit(target);
+		while (target >= 0 && postings.advance(target)) {
+			int document = postings.document();
+			if (candidates.get(document)) {
+				return document;
+			}
+			target = candidates.nextSetBit(document + 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Turns matches into sorted results. When there are more matches than
+	 * wanted, a heap of the best k so far is kept, with the worst of them on
+	 * top, and a Result is only made for matches that beat it.
+	 *
+	 * @param matches the matches of a search
+	 * @param k       the most results to return, or {@link #ALL}
+	 * @return an arraylist of the best k results, in order
+	 * @throws IllegalArgumentException if k is not positive
+	 */
+	private ArrayList<Result> results(Matches matches, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("The number of results must be positive: " + k);
+		}
+
+		if (matches.size <= k) {
+			ArrayList<Result> results = new ArrayList<>(matches.size);
+			for (int i = 0; i < matches.size; i++) {
+				int document = matches.documents[i];
+				results.add(new Result(document, matches.counts[document], matches.score(document, documents)));
+			}
+			Collections.sort(results);
+			return results;
+		}
+
+		PriorityQueue<Result> best = new PriorityQueue<>(k, Collections.reverseOrder());
+		for (int i = 0; i < matches.size; i++) {
+			int document = matches.documents[i];
+			int count = matches.counts[document];
+			double score = matches.score(document, documents);
+			if (best.size() < k) {
+				best.add(new Result(document, count, score));
+			} else if (compare(score, count, documents.getLocation(document), best.peek()) < 0) {
+				best.poll();
+				best.add(new Result(document, count, score));
+			}
+		}
+
+		ArrayList<Result> results = new ArrayList<>(best);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Finds the best k results one document at a time with MaxScore pruning.
+	 *
+	 * Each word has an upper bound: the highest score it gives any document on
+	 * its own. The cursors are sorted by bound, and once the heap of the best k
+	 * is full, the words whose bounds add up to less than the worst score in the
+	 * heap can no longer make a document good enough by themselves. Candidate
+	 * documents then only come from the other words, and the weak words are only
+	 * looked up in a candidate while it could still beat the heap; everything
+	 * else is skipped without being scored. Postings stored in blocks also give
+	 * the highest frequency of the block a candidate would be in, which with the
+	 * candidate's length is a tighter bound than the word's, so a candidate can
+	 * often be dropped without decoding that block at all.
+	 *
+	 * @param cursors a cursor for every word being searched
+	 * @param k       the most results to return
+	 * @param scorer  how to score the results
+	 * @return an arraylist of the best k results, in order
+	 * @throws IllegalArgumentException if k is not positive
+	 */
+	private ArrayList<Result> prunedResults(ArrayList<Cursor> cursors, int k, Scorer scorer) {
+		if (k < 1) {
+			throw new IllegalArgumentException("The number of results must be positive: " + k);
+		}
+
+		double[] parts = new double[cursors.size()];
+		cursors.sort((a, b) -> Double.compare(a.bound, b.bound));
+		double[] prefix = new double[cursors.size()];
+		double sum = 0;
+		for (int i = 0; i < cursors.size(); i++) {
+			sum += cursors.get(i).bound;
+			prefix[i] = sum;
+		}
+
+		PriorityQueue<Cursor> essential = new PriorityQueue<>((a, b) -> Integer.compare(a.document, b.document));
+		essential.addAll(cursors);
+		int firstEssential = 0;
+		double threshold = Double.NEGATIVE_INFINITY;
+		PriorityQueue<Result> best = new PriorityQueue<>(k, Collections.reverseOrder());
+
+		candidates: while (!essential.isEmpty()) {
+			int document = essential.peek().document;
+			int length = documents.getCount(document);
+			int count = 0;
+			double weights = 0;
+			long found = 0;
+			while (!essential.isEmpty() && essential.peek().document == document) {
+				Cursor cursor = essential.poll();
+				count += cursor.postings.frequency();
+				parts[cursor.order] = scorer.weight(cursor.postings.frequency(), length, cursor.frequency, documents);
+				weights += parts[cursor.order];
+				found |= 1L << cursor.order;
+				if (cursor.next()) {
+					essential.add(cursor);
+				}
+			}
+
+			if (documents.isDeleted(document)) {
+				continue;
+			}
+
+			for (int i = firstEssential - 1; i >= 0; i--) {
+				if (below(weights + prefix[i], threshold)) {
+					continue candidates;
+				}
+
+				Cursor cursor = cursors.get(i);
+				if (cursor.document < document) {
+					int most = cursor.postings.maxFrequency(document);
+					double bound = most == 0 ? 0 : scorer.weight(most, length, cursor.frequency, documents);
+					if (below(weights + bound + (i > 0 ? prefix[i - 1] : 0), threshold)) {
+						continue candidates;
+					}
+					cursor.advance(document);
+				}
+				if (cursor.document == document) {
+					count += cursor.postings.frequency();
+					parts[cursor.order] = scorer.weight(cursor.postings.frequency(), length, cursor.frequency, documents);
+					weights += parts[cursor.order];
+					found |= 1L << cursor.order;
+				}
+			}
+
+			double score = scorer.score(count, sum(parts, found), length);
+			if (best.size() < k) {
+				best.add(new Result(document, count, score));
+			} else if (compare(score, count, documents.getLocation(document), best.peek()) < 0) {
+				best.poll();
+				best.add(new Result(document, count, score));
+			} else {
+				continue;
+			}
+
+			if (best.size() == k) {
+				threshold = best.peek().score;
+				while (firstEssential < cursors.size() && below(prefix[firstEssential], threshold)) {
+					essential.remove(cursors.get(firstEssential++));
+				}
+			}
+		}
+
+		ArrayList<Result> results = new ArrayList<>(best);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Finds the best k results from the documents where the words matter most.
+	 *
+	 * Documents are taken from the word whose next document has the highest
+	 * impact bound and scored in full right away, looking the other words up in
+	 * their postings. A document that has not been taken yet can score no more
+	 * than the bounds of every word's next document added up, so once the heap
+	 * of the best k is full and that sum is below the worst score in it, the
+	 * rest of the documents are never read. For a common word most of its
+	 * documents are skipped this way.
+	 *
+	 * @param impacts the impacts of every word being searched
+	 * @param k       the most results to return
+	 * @param scorer  how to score the results
+	 * @return an arraylist of the best k results, in order
+	 * @throws IllegalArgumentException if k is not positive
+	 */
+	private ArrayList<Result> impactResults(ArrayList<Impacts> impacts, int k, Scorer scorer) {
+		if (k < 1) {
+			throw new IllegalArgumentException("The number of results must be positive: " + k);
+		}
+
+		BitSet seen = new BitSet(documents.size());
+		PriorityQueue<Result> best = new PriorityQueue<>(k, Collections.reverseOrder());
+		double threshold = Double.NEGATIVE_INFINITY;
+
+		while (true) {
+			Impacts top = null;
+			double remaining = 0;
+			for (Impacts word : impacts) {
+				remaining += word.bound;
+				if (word.bound > 0 && (top == null || word.bound > top.bound)) {
+					top = word;
+				}
+			}
+			if (top == null || (best.size() == k && below(remaining, threshold))) {
+				break;
+			}
+
+			int document = top.iterator.document();
+			int own = top.iterator.frequency();
+			top.next(scorer, documents);
+			if (seen.get(document) || documents.isDeleted(document)) {
+				continue;
+			}
+			seen.set(document);
+
+			int length = documents.getCount(document);
+			int count = 0;
+			double weights = 0;
+			// Impacts are in the order the words were searched, like a full search
+			for (Impacts word : impacts) {
+				int frequency = word == top ? own : word.frequency(document);
+				if (frequency > 0) {
+					count += frequency;
+					weights += scorer.weight(frequency, length, word.documentFrequency, documents);
+				}
+			}
+
+			double score = scorer.score(count, weights, length);
+			if (best.size() < k) {
+				best.add(new Result(document, count, score));
+			} else if (compare(score, count, documents.getLocation(document), best.peek()) < 0) {
+				best.poll();
+				best.add(new Result(document, count, score));
+			}
+			if (best.size() == k) {
+				threshold = best.peek().score;
+			}
+		}
+
+		ArrayList<Result> results = new ArrayList<>(best);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Adds up the weights a document got from each word in the order the words
+	 * were searched. A full search adds them in that order too, so the document
+	 * gets exactly the same score however it was found, and ties between
+	 * documents are broken the same way.
+	 *
+	 * @param parts the weight from each word, by position in the search
+	 * @param found a bit for each word the document has
+	 * @return the sum of the weights
+	 */
+	private static double sum(double[] parts, long found) {
+		double weights = 0;
+		for (long rest = found; rest != 0; rest &= rest - 1) {
+			weights += parts[Long.numberOfTrailingZeros(rest)];
+		}
+		return weights;
+	}
+
+	/**
+	 * Checks if an upper bound is surely below a score, leaving room for the
+	 * rounding of adding up bounds.
+	 *
+	 * @param bound the upper bound
+	 * @param score the score to beat
+	 * @return true if nothing within the bound can reach the score
+	 */
+	private static boolean below(double bound, double score) {
+		return bound * (1 + 1e-9) < score;
+	}
+
+	/**
+	 * Returns the highest score a word gives any one document, finding it the
+	 * first time the word is searched in this version of the index. Deleting
+	 * documents only lowers the real bound, so the saved one stays valid.
+	 *
+	 * @param term the term ID of the word
+	 * @return the highest number of matches over length of any document
+	 */
+	private double getBound(int term) {
+		long current = getVersion();
+		if (boundsVersion != current) {
+			bounds.clear();
+			boundsVersion = current;
+		}
+
+		Double bound = bounds.get(term);
+		if (bound == null) {
+			double highest = 0;
+			PostingsIterator postings = getPostingsIterator(term);
+			while (postings != null && postings.next()) {
+				int length = documents.getCount(postings.document());
+				if (length > 0) {
+					highest = Math.max(highest, (double) postings.frequency() / length);
+				}
+			}
+			bound = highest;
+			bounds.put(term, bound);
+		}
+		return bound;
+	}
+
+	/**
+	 * Compares a possible result to a result in the order of
+	 * {@link Result#compareTo(Result)}: higher score first, then higher count,
+	 * then location ignoring case.
+	 *
+	 * @param score    the score of the possible result
+	 * @param count    the count of the possible result
+	 * @param location the location of the possible result
+	 * @param other    the result to compare to
+	 * @return a negative number if the possible result comes first, a positive
+	 *         number if it comes after, or 0 if they tie
+	 */
+	private static int compare(double score, int count, String location, Result other) {
+		double scoreDifference = score - other.score;
+		int countDifference = count - other.count;
+		if (scoreDifference != 0) {
+			return scoreDifference > 0 ? -1 : 1;
+		} else if (countDifference != 0) {
+			return countDifference > 0 ? -1 : 1;
+
+		} else {
+			return (location.toLowerCase().compareTo(other.getFileName().toLowerCase()));
+		}
+	}
+
+	/**
+	 * The words of one version of an index in sorted order, so each has a term
+	 * ID, along with their postings and the term ID range of every short prefix.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Dictionary {
+
+		/**
+		 * The version of the index the words are from
+		 */
+		private final long version;
+
+		/**
+		 * The words, indexed by term ID
+		 */
+		private final String[] words;
+
+		/**
+		 * The postings of each word, indexed by term ID
+		 */
+		private final Postings[] postings;
+
+		/**
+		 * The term ID range of every short prefix
+		 */
+		private final TermRanges ranges;
+
+		/**
+		 * Constructor
+		 *
+		 * @param version the version of the index
+		 * @param index   the words and postings of the index
+		 */
+		private Dictionary(long version, TreeMap<String, Postings> index) {
+			this.version = version;
+			this.words = new String[index.size()];
+			this.postings = new Postings[index.size()];
+			int term = 0;
+			for (Map.Entry<String, Postings> entry : index.entrySet()) {
+				words[term] = entry.getKey();
+				postings[term++] = entry.getValue();
+			}
+			this.ranges = new TermRanges(Arrays.asList(words).iterator());
+		}
+	}
+
+	/**
+	 * The words a search looks up and the index each one is looked up in, up to
+	 * {@link #MAX_PRUNED_WORDS}. Pruning pays off for a handful of words; a
+	 * prefix that expands to more words than that is cheaper to add up one word
+	 * at a time.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Terms {
+
+		/**
+		 * The most words a search prunes with, at most 64 so that a long has a bit
+		 * for each word
+		 */
+		private static final int MAX_PRUNED_WORDS = 32;
+
+		/**
+		 * The index of each word
+		 */
+		private final ArrayList<InvertedIndex> indexes = new ArrayList<>();
+
+		/**
+		 * The term ID of each word in its index
+		 */
+		private final ArrayList<Integer> terms = new ArrayList<>();
+
+		/**
+		 * Adds a word.
+		 *
+		 * @param index the index the word is in
+		 * @param term  the term ID of the word in that index
+		 * @return false if there are now too many words to prune with
+		 */
+		private boolean add(InvertedIndex index, int term) {
+			indexes.add(index);
+			terms.add(term);
+			return !isFull();
+		}
+
+		/**
+		 * Checks if there are too many words to prune with.
+		 *
+		 * @return true if there are more than {@link #MAX_PRUNED_WORDS} words
+		 */
+		private boolean isFull() {
+			return terms.size() > MAX_PRUNED_WORDS;
+		}
+
+		/**
+		 * Makes the impacts of every word, if at least one of them has its
+		 * postings in impact order. The others are read in document order with
+		 * their highest impact as the bound of every document.
+		 *
+		 * @param searched every index being searched, for document frequencies
+		 * @param scorer   how the results are scored
+		 * @return the impacts of the words that have documents, or null if no
+		 *         word has its postings in impact order
+		 */
+		private ArrayList<Impacts> impacts(List<? extends InvertedIndex> searched, Scorer scorer) {
+			boolean ordered = false;
+			ArrayList<Impacts> impacts = new ArrayList<>(terms.size());
+			for (int i = 0; i < terms.size(); i++) {
+				InvertedIndex index = indexes.get(i);
+				int term = terms.get(i);
+				ImpactIterator iterator = index.getImpactIterator(term);
+				ordered |= iterator != null;
+				if (iterator == null) {
+					PostingsIterator postings = index.getPostingsIterator(term);
+					iterator = postings == null ? null : new ImpactIterator() {
+						@Override
+						public boolean next() {
+							return postings.next();
+						}
+
+						@Override
+						public int document() {
+							return postings.document();
+						}
+
+						@Override
+						public int frequency() {
+							return postings.frequency();
+						}
+
+						@Override
+						public double impact() {
+							return index.getBound(term);
+						}
+					};
+				}
+
+				if (iterator != null) {
+					int frequency = scorer.usesDocumentFrequency() ? documentFrequency(searched, index.getTerm(term)) : 0;
+					Impacts word = new Impacts(index, term, iterator, frequency);
+					word.next(scorer, index.getDocuments());
+					impacts.add(word);
+				}
+			}
+			return ordered ? impacts : null;
+		}
+
+		/**
+		 * Makes a cursor for every word that has documents.
+		 *
+		 * @param searched every index being searched, for document frequencies
+		 * @param scorer   how the results are scored
+		 * @return the cursors, each on its first document
+		 */
+		private ArrayList<Cursor> cursors(List<? extends InvertedIndex> searched, Scorer scorer) {
+			boolean counting = scorer.usesDocumentFrequency();
+			ArrayList<Cursor> cursors = new ArrayList<>(terms.size());
+			for (int i = 0; i < terms.size(); i++) {
+				InvertedIndex index = indexes.get(i);
+				PostingsIterator postings = index.getPostingsIterator(terms.get(i));
+				if (postings != null) {
+					int frequency = counting ? documentFrequency(searched, index.getTerm(terms.get(i))) : 0;
+					double bound = scorer.bound(index.getBound(terms.get(i)), frequency, index.getDocuments());
+					Cursor cursor = new Cursor(postings, bound, frequency, cursors.size());
+					if (cursor.next()) {
+						cursors.add(cursor);
+					}
+				}
+			}
+			return cursors;
+		}
+	}
+
+	/**
+	 * The position of a search in the documents of one word.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Cursor {
+
+		/**
+		 * The documents of the word
+		 */
+		private final PostingsIterator postings;
+
+		/**
+		 * The highest score the word gives any one document
+		 */
+		private final double bound;
+
+		/**
+		 * The number of documents with the word, or 0 if the scorer does not use
+		 * it
+		 */
+		private final int frequency;
+
+		/**
+		 * The position of the word among the words being searched
+		 */
+		private final int order;
+
+		/**
+		 * The current document ID, or Integer.MAX_VALUE at the end
+		 */
+		private int document;
+
+		/**
+		 * Constructor
+		 *
+		 * @param postings  the documents of the word, before the first one
+		 * @param bound     the highest score the word gives any one document
+		 * @param frequency the number of documents with the word, or 0 if the
+		 *                  scorer does not use it
+		 * @param order     the position of the word among the words being
+		 *                  searched
+		 */
+		private Cursor(PostingsIterator postings, double bound, int frequency, int order) {
+			this.postings = postings;
+			this.bound = bound;
+			this.frequency = frequency;
+			this.order = order;
+			this.document = -1;
+		}
+
+		/**
+		 * Moves to the next document.
+		 *
+		 * @return true if there was another document
+		 */
+		private boolean next() {
+			document = postings.next() ? postings.document() : Integer.MAX_VALUE;
+			return document != Integer.MAX_VALUE;
+		}
+
+		/**
+		 * Moves to the first document at or after a target, unless already there.
+		 *
+		 * @param target the document ID
+		 */
+		private void advance(int target) {
+			if (document < target) {
+				document = postings.advance(target) ? postings.document() : Integer.MAX_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * The position of a search in the documents of one word in impact order.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Impacts {
+
+		/**
+		 * The index the word is in
+		 */
+		private final InvertedIndex index;
+
+		/**
+		 * The term ID of the word in that index
+		 */
+		private final int term;
+
+		/**
+		 * The documents of the word in impact order
+		 */
+		private final ImpactIterator iterator;
+
+		/**
+		 * The number of documents with the word, or 0 if the scorer does not use
+		 * it
+		 */
+		private final int documentFrequency;
+
+		/**
+		 * The highest score the word can give the current document or any after
+		 * it, or 0 at the end
+		 */
+		private double bound;
+
+		/**
+		 * Constructor
+		 *
+		 * @param index             the index the word is in
+		 * @param term              the term ID of the word in that index
+		 * @param iterator          the documents of the word, before the first
+		 *                          one
+		 * @param documentFrequency the number of documents with the word, or 0 if
+		 *                          the scorer does not use it
+		 */
+		private Impacts(InvertedIndex index, int term, ImpactIterator iterator, int documentFrequency) {
+			this.index = index;
+			this.term = term;
+			this.iterator = iterator;
+			this.documentFrequency = documentFrequency;
+			this.bound = 0;
+		}
+
+		/**
+		 * Moves to the next document.
+		 *
+		 * @param scorer    how the results are scored
+		 * @param documents the document table
+		 */
+		private void next(Scorer scorer, DocumentTable documents) {
+			bound = iterator.next() ? scorer.bound(iterator.impact(), documentFrequency, documents) : 0;
+		}
+
+		/**
+		 * Looks up how many times the word appears in a document.
+		 *
+		 * @param document the document ID
+		 * @return the frequency, or 0 if the document does not have the word
+		 */
+		private int frequency(int document) {
+			PostingsIterator postings = index.getPostingsIterator(term);
+			if (postings == null || !postings.advance(document)) {
+				return 0;
+			}
+			return postings.document() == document ? postings.frequency() : 0;
+		}
+	}
+
+	/**
+	 * The number of matches of each document found by a search, and the order
+	 * the documents were first found in.
+	 *
+	 * The arrays are indexed by document ID, so they are as large as the
+	 * document table. Each thread keeps one Matches and reuses it for every
+	 * search, clearing only the entries the last search touched, so a search
+	 * allocates nothing in proportion to the number of documents or matches.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Matches {
+
+		/**
+		 * The matches each thread reuses
+		 */
+		private static final ThreadLocal<Matches> REUSABLE = new ThreadLocal<>();
+
+		/**
+		 * How the matches are scored
+		 */
+		private Scorer scorer;
+
+		/**
+		 * The number of matches of each document, indexed by document ID
+		 */
+		private final int[] counts;
+
+		/**
+		 * The sum of the weights of the words in each document, indexed by
+		 * document ID
+		 */
+		private final double[] weights;
+
+		/**
+		 * Whether a search is using these matches
+		 */
+		private boolean used;
+
+		/**
+		 * The IDs of the documents with matches, in the order they were found
+		 */
+		private int[] documents;
+
+		/**
+		 * The number of documents with matches
+		 */
+		private int size;
+
+		/**
+		 * Constructor
+		 *
+		 * @param capacity the number of document IDs in use
+		 * @param scorer   how the matches are scored
+		 */
+		private Matches(int capacity, Scorer scorer) {
+			this.scorer = scorer;
+			this.counts = new int[capacity];
+			this.weights = new double[capacity];
+			this.documents = new int[Math.min(capacity, 16)];
+			this.size = 0;
+			this.used = false;
+		}
+
+		/**
+		 * Returns empty matches for a search, reusing this thread's matches when
+		 * they are large enough and not already in use. Must be given back with
+		 * {@link #release()}.
+		 *
+		 * @param capacity the number of document IDs in use
+		 * @param scorer   how the matches are scored
+		 * @return the empty matches
+		 */
+		private static Matches acquire(int capacity, Scorer scorer) {
+			Matches matches = REUSABLE.get();
+			if (matches == null || matches.used || matches.counts.length < capacity) {
+				boolean nested = matches != null && matches.used;
+				matches = new Matches(nested ? capacity : capacity + (capacity >> 2), scorer);
+				if (!nested) {
+					REUSABLE.set(matches);
+				}
+			}
+			matches.scorer = scorer;
+			matches.used = true;
+			return matches;
+		}
+
+		/**
+		 * Clears the entries a search touched and gives the matches back to the
+		 * thread for its next search.
+		 */
+		private void release() {
+			for (int i = 0; i < size; i++) {
+				counts[documents[i]] = 0;
+				weights[documents[i]] = 0;
+			}
+			size = 0;
+			used = false;
+		}
+
+		/**
+		 * Adds the matches of a word or phrase in a document.
+		 *
+		 * @param document  the document ID
+		 * @param matches   the number of matches, at least 1
+		 * @param frequency the number of documents with the word or phrase, or 0
+		 *                  if the scorer does not use it
+		 * @param table     the document table
+		 */
+		private void add(int document, int matches, int frequency, DocumentTable table) {
+			weights[document] += scorer.weight(matches, table.getCount(document), frequency, table);
+			if (counts[document] == 0) {
+				if (size == documents.length) {
+					documents = Arrays.copyOf(documents, Math.max(16, size + (size >> 1)));
+				}
+				documents[size++] = document;
+			}
+			counts[document] += matches;
+		}
+
+		/**
+		 * Returns the score of a document.
+		 *
+		 * @param document the document ID
+		 * @param table    the document table
+		 * @return the score of its matches
+		 */
+		private double score(int document, DocumentTable table) {
+			return scorer.score(counts[document], weights[document], table.getCount(document));
+		}
+
+		/**
+		 * Returns the documents with matches.
+		 *
+		 * @return the document IDs as a new set
+		 */
+		private BitSet toBitSet() {
+			BitSet found = new BitSet(counts.length);
+			for (int i = 0; i < size; i++) {
+				found.set(documents[i]);
+			}
+			return found;
+		}
+	}
+
+	/**
+	 * Returns how searches score documents.
+	 *
+	 * @return the scorer, {@link Scorer#DEFAULT} unless another was set
+	 */
+	public Scorer getScorer() {
+		return scorer;
+	}
+
+	/**
+	 * Changes how searches score documents.
+	 *
+	 * @param scorer the scorer
+	 */
+	public void setScorer(Scorer scorer) {
+		this.scorer = scorer;
+	}
+
+	/**
+	 * Returns the documents of a word in impact order, for indexes that store
+	 * them. The default stores none.
+	 *
+	 * @param term the term ID of the word
+	 * @return the documents from the highest impact down, or null
+	 */
+	protected ImpactIterator getImpactIterator(int term) {
+		return null;
+	}
+
+	/**
+	 * Returns the postings of a word. Subclasses that store words differently
+	 * override this and the other protected accessors below; every other method
+	 * is written in terms of them.
+	 *
+	 * @param word the word
+	 * @return the postings of the word, or null if it is not in the index
+	 */
+	protected Postings getPostings(String word) {
+		return index.get(word);
+	}
+
+	/**
+	 * Stores the postings of a word, replacing any it had. The postings are
+	 * shared, not copied.
+	 *
+	 * @param word     the word
+	 * @param postings the postings of the word
+	 */
+	protected void putPostings(String word, Postings postings) {
+		index.put(word, postings);
+	}
+
+	/**
+	 * Returns an iterator over the documents of a word, for searching.
+	 *
+	 * @param word the word
+	 * @return an iterator over its postings, or null if it is not in the index
+	 */
+	protected PostingsIterator getPostingsIterator(String word) {
+		Postings postings = getPostings(word);
+		return postings == null ? null : postings.iterator();
+	}
+
+	/**
+	 * Returns the words that start with a prefix, in sorted order.
+	 *
+	 * @param prefix the prefix
+	 * @return the matching words
+	 */
+	protected Iterable<String> getWords(String prefix) {
+		int[] range = getTermRange(prefix);
+		return Arrays.asList(dictionary().words).subList(range[0], range[1]);
+	}
+
+	/**
+	 * Returns the term ID of a word. Term IDs number the words of one index in
+	 * sorted order, starting at 0, and are only good until the index changes.
+	 *
+	 * @param word the word
+	 * @return the term ID, or -1 if the word is not in the index
+	 */
+	protected int getTermId(String word) {
+		int term = Arrays.binarySearch(dictionary().words, word);
+		return term >= 0 ? term : -1;
+	}
+
+	/**
+	 * Returns the range of term IDs of the words that start with a prefix.
+	 *
+	 * @param prefix the prefix
+	 * @return the first and one past the last term ID, which are equal if no word
+	 *         has the prefix
+	 *
+	 * @see TermRanges
+	 */
+	protected int[] getTermRange(String prefix) {
+		Dictionary current = dictionary();
+		return current.ranges.range(prefix, term -> current.words[term]);
+	}
+
+	/**
+	 * Returns the word with a term ID.
+	 *
+	 * @param term the term ID
+	 * @return the word
+	 */
+	protected String getTerm(int term) {
+		return dictionary().words[term];
+	}
+
+	/**
+	 * Returns an iterator over the documents of a word, for searching.
+	 *
+	 * @param term the term ID of the word
+	 * @return an iterator over its postings, or null if it has none
+	 */
+	protected PostingsIterator getPostingsIterator(int term) {
+		return dictionary().postings[term].iterator();
+	}
+
+	/**
+	 * Returns the dictionary of the current version of the index, numbering the
+	 * words again if the index changed since it was last numbered.
+	 *
+	 * @return the dictionary
+	 */
+	private Dictionary dictionary() {
+		Dictionary current = dictionary;
+		if (current == null || current.version != version) {
+			current = new Dictionary(version, index);
+			dictionary = current;
+		}
+		return current;
+	}
+
+	/**
+	 * will output to file using method in SimpleJsonWriter
+	 *
+	 * @param outFile file name of file that is getting written
+	 * @throws IOException
+	 */
+	public void printIndex(Path outFile) throws IOException {
+		InvertedIndex live = documents.hasDeleted() ? without(this, documents.getDeleted()) : this;
+		SimpleJsonWriter.asDoubleNested(live.new LocationView(), outFile);
+	}
+
+	/**
+	 * getter for count
+	 *
+	 * @return count as a unmodifiableMap
+	 */
+	public Map<String, Integer> getCount() {
+		TreeMap<String, Integer> locations = new TreeMap<>();
+		for (int document = 0; document < documents.size(); document++) {
+			if (documents.getCount(document) > 0) {
+				locations.put(documents.getLocation(document), documents.getCount(document));
+			}
+		}
+		return Collections.unmodifiableMap(locations);
+	}
+
+	/**
+	 * checks to see if word is in index
+	 *
+	 * @param word word that is getting checked
+	 * @return if index has word
+	 */
+	public boolean contains(String word) {
+		return index.containsKey(word);
+	}
+
+	/**
+	 * checks if the map has the specific word and if word contain path.
+	 *
+	 * @param word word that is getting checked
+	 * @param path path that is getting checked
+	 * @return if has word and path
+	 */
+	public boolean contains(String word, String path) {
+		Postings postings = getPostings(word);
+		return postings != null && postings.contains(documents.getId(path));
+	}
+
+	/**
+	 * checks if the map contains the specific word, path and index.
+	 *
+	 * @param word    word that is getting checked
+	 * @param path    path that is getting checked
+	 * @param postion postion that is getting checked
+	 * @return if has word and path at postion
+	 */
+	public boolean contains(String word, String path, int postion) {
+		return contains(word, path) && getPostings(word).get(documents.getId(path)).contains(postion);
+	}
+
+	/**
+	 * getter for set of words
+	 *
+	 * @return an unmodifiable set of words
+	 */
+	public Set<String> getWords() {
+		return Collections.unmodifiableSet(index.keySet());
+
+	}
+
+	/**
+	 * getter for set of locations
+	 *
+	 * @param word key value for locations
+	 * @return an unmodifiable set of Locations
+	 */
+	public Set<String> getLocations(String word) {
+		Postings postings = getPostings(word);
+		if (postings != null) {
+			return Collections.unmodifiableSet(locations(postings).keySet());
+		}
+		return Collections.emptySet();
+
+	}
+
+	/**
+	 * getter for set of postions
+	 *
+	 * @param word
+	 * @param location
+	 * @return an unmodifiable set of Positions
+	 */
+	public Set<Integer> getPositions(String word, String location) {
+		if (contains(word, location)) {
+			return Collections.unmodifiableSet(getPostings(word).get(documents.getId(location)));
+		}
+		return Collections.emptySet();
+
+	}
+
+	/**
+	 * returns how many words is in inverted index.
+	 *
+	 * @return size of inverted index.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * returns how many paths are found in word.
+	 *
+	 * @param word to check
+	 * @return amount of paths, return 0 if not found
+	 */
+	public int size(String word) {
+		Postings postings = getPostings(word);
+		return postings != null ? postings.size() : 0;
+	}
+
+	/**
+	 * Returns the version of the index, which changes every time the index does.
+	 * Two searches that report the same version saw the same words.
+	 *
+	 * @return the number of changes made to the index
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the document table used by this index.
+	 *
+	 * @return the document table
+	 */
+	public DocumentTable getDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Maps the documents of a word's postings to their locations, sorted by
+	 * location, leaving out deleted documents.
+	 *
+	 * @param postings the postings of a word
+	 * @return the positions of the word by location
+	 */
+	private TreeMap<String, PostingList> locations(Postings postings) {
+		TreeMap<String, PostingList> locations = new TreeMap<>();
+		for (int i = 0; i < postings.size(); i++) {
+			if (documents.isDeleted(postings.document(i))) {
+				continue;
+			}
+			locations.put(documents.getLocation(postings.document(i)), postings.positions(i));
+		}
+		return locations;
+	}
+
+	/**
+	 * A read-only view of the index keyed by location instead of document ID,
+	 * used for writing. Each word's locations are sorted only when that word is
+	 * reached, so the whole index is never copied at once.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class LocationView extends AbstractMap<String, Map<String, PostingList>> {
+
+		@Override
+		public Set<Entry<String, Map<String, PostingList>>> entrySet() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<Entry<String, Map<String, PostingList>>> iterator() {
+					Iterator<String> words = getWords().iterator();
+					return new Iterator<>() {
+						@Override
+						public boolean hasNext() {
+							return words.hasNext();
+						}
+
+						@Override
+						public Entry<String, Map<String, PostingList>> next() {
+							String word = words.next();
+							return Map.entry(word, locations(getPostings(word)));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return InvertedIndex.this.size();
+				}
+			};
+		}
 	}
 
 }
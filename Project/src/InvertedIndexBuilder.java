@@ -1,11 +1,16 @@
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import opennlp.tools.stemmer.Stemmer;
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
@@ -37,7 +42,9 @@ public class InvertedIndexBuilder {
 	}
 
 	/**
-	 * Will build index by traversing files
+	 * Will build index by traversing files. Files are passed to
+	 * {@link #addPath(Path)} as the walk finds them, so indexing starts before
+	 * the walk is done and the walk never holds the whole list of files.
 	 *
 	 * @param path The Path that is getting checked
 	 * @throws IOException
@@ -46,10 +53,75 @@ public class InvertedIndexBuilder {
 		if (Files.isRegularFile(path)) {
 			addPath(path);
 		} else {
-			for (Path newPath : getTextFiles(path)) {
-				addPath(newPath);
+			try (Stream<Path> files = walkTextFiles(path)) {
+				Iterator<Path> iterator = files.iterator();
+				while (iterator.hasNext()) {
+					addPath(iterator.next());
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * Will update the index to match the text files under a path, only reading
+	 * files that are new or changed since the manifest was saved. Documents of
+	 * changed or deleted files are removed from the index first. Files the
+	 * manifest trusts but the index does not hold (for example when the saved
+	 * index was not loaded) are indexed again.
+	 *
+	 * @param path         The Path that is getting checked
+	 * @param manifestPath The manifest to read and then save
+	 * @throws IOException
+	 */
+	public void build(Path path, Path manifestPath) throws IOException {
+		Manifest manifest = Manifest.read(manifestPath);
+		List<Path> files = Files.isRegularFile(path) ? List.of(path) : getTextFiles(path);
+
+		HashSet<String> existing = new HashSet<>();
+		ArrayList<Path> changed = new ArrayList<>();
+		for (Path file : files) {
+			existing.add(file.toString());
+			if (manifest.update(file) || !isIndexed(file)) {
+				changed.add(file);
 			}
 		}
+
+		ArrayList<String> removed = manifest.retain(path, existing);
+		for (Path file : changed) {
+			removed.add(file.toString());
+		}
+		index.removeDocuments(removed);
+
+		try {
+			for (Path file : changed) {
+				addPath(file);
+			}
+		} finally {
+			finish();
+		}
+		manifest.write(manifestPath);
+	}
+
+	/**
+	 * Waits for files passed to {@link #addPath(Path)} to be indexed.
+	 *
+	 * @throws IOException
+	 */
+	protected void finish() throws IOException {
+	}
+
+	/**
+	 * Checks if a file has words in the index.
+	 *
+	 * @param file the file
+	 * @return true if the index has a word count for the file
+	 */
+	private boolean isIndexed(Path file) {
+		DocumentTable documents = index.getDocuments();
+		int id = documents.getId(file.toString());
+		return id >= 0 && documents.getCount(id) > 0;
 	}
 
 	/**
@@ -81,26 +153,49 @@ public class InvertedIndexBuilder {
 	 * @throws IOException
 	 */
 	public static List<Path> getTextFiles(Path path) throws IOException {
-		return Files.walk(path, FileVisitOption.FOLLOW_LINKS).filter(textFile -> isTextFile(textFile))
-				.collect(Collectors.toList());
+		try (Stream<Path> files = walkTextFiles(path)) {
+			return files.collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 	}
 
 	/**
-	 * Adds Path to index
+	 * Walks a directory lazily, giving its text files in the same order as
+	 * {@link #getTextFiles(Path)} as they are found. The stream must be closed.
+	 *
+	 * @param path path or directory that needs to be traversed
+	 * @return a stream of text files
+	 * @throws IOException if the walk cannot start
+	 */
+	public static Stream<Path> walkTextFiles(Path path) throws IOException {
+		return Files.walk(path, FileVisitOption.FOLLOW_LINKS).filter(textFile -> isTextFile(textFile));
+	}
+
+	/**
+	 * Adds Path to index. Files larger than {@link MappedTextFile#CHUNK_SIZE} are
+	 * read through a {@link MappedTextFile} instead of line by line.
 	 *
 	 * @param index the InvertedIndex that the file is getting added to
 	 * @param file  the Path that is getting added to index.
 	 * @throws IOException
 	 */
 	public static void addPath(InvertedIndex index, Path file) throws IOException {
-		Stemmer stemmer = new SnowballStemmer(DEFAULT);
+		if (MappedTextFile.isLarge(file)) {
+			new MappedTextFile(file).addTo(index);
+			return;
+		}
+
+		Stemmer stemmer = StemCache.SHARED;
+		TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
 		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);) {
 			String line = reader.readLine();
 			int i = 0;
 			String fileName = file.toString();
 			while (line != null) {
-				String[] parsed = TextParser.parse(line);
-				for (String word : parsed) {
+				tokenizer.reset(line);
+				String word;
+				while ((word = tokenizer.next()) != null) {
 					String data = stemmer.stem(word).toString();
 					index.addElement(data, fileName, ++i);
 				}
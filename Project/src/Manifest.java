@@ -0,0 +1,214 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers the size, modification time and content hash of every file that
+ * was indexed, so a later build can tell which files are new, changed or gone
+ * without reading the ones that are not. A file whose size and modification
+ * time match is trusted to be unchanged; otherwise its hash decides.
+ *
+ * The manifest is saved as a text file with one line per file: size,
+ * modification time in milliseconds, SHA-256 hash and location, separated by
+ * tabs.
+ *
+ * @author Jaden
+ *
+ */
+public class Manifest {
+
+	/**
+	 * The hash used for file contents
+	 */
+	private static final String ALGORITHM = "SHA-256";
+
+	/**
+	 * Entries by location
+	 */
+	private final TreeMap<String, Entry> entries;
+
+	/**
+	 * Constructor for an empty manifest
+	 */
+	public Manifest() {
+		this.entries = new TreeMap<>();
+	}
+
+	/**
+	 * Reads a manifest saved by {@link #write(Path)}.
+	 *
+	 * @param path the manifest file
+	 * @return the manifest, or an empty manifest if the file does not exist
+	 * @throws IOException if unable to read or parse the file
+	 */
+	public static Manifest read(Path path) throws IOException {
+		Manifest manifest = new Manifest();
+		if (!Files.exists(path)) {
+			return manifest;
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);) {
+			String line = reader.readLine();
+			while (line != null) {
+				String[] fields = line.split("\t", 4);
+				if (fields.length != 4) {
+					throw new IOException("Malformed manifest line: " + line);
+				}
+				try {
+					manifest.entries.put(fields[3],
+							new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2]));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed manifest line: " + line, e);
+				}
+				line = reader.readLine();
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Saves the manifest.
+	 *
+	 * @param path the manifest file
+	 * @throws IOException if unable to write the file
+	 */
+	public void write(Path path) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);) {
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				Entry value = entry.getValue();
+				writer.write(value.size + "\t" + value.modified + "\t" + value.hash + "\t" + entry.getKey());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Checks a file against its entry and records its current state.
+	 *
+	 * @param file the file
+	 * @return true if the file is new or its contents changed
+	 * @throws IOException if unable to read the file
+	 */
+	public boolean update(Path file) throws IOException {
+		String location = file.toString();
+		long size = Files.size(file);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+
+		Entry entry = entries.get(location);
+		if (entry != null && entry.size == size && entry.modified == modified) {
+			return false;
+		}
+
+		String hash = hash(file);
+		entries.put(location, new Entry(size, modified, hash));
+		return entry == null || !entry.hash.equals(hash);
+	}
+
+	/**
+	 * Drops the entries under a directory that are not in a set of locations,
+	 * such as files that were deleted since the last build.
+	 *
+	 * @param root     the directory (or file) that was walked
+	 * @param existing the locations of the files that were found
+	 * @return the locations of the dropped entries
+	 */
+	public ArrayList<String> retain(Path root, Set<String> existing) {
+		ArrayList<String> removed = new ArrayList<>();
+		Iterator<String> locations = entries.keySet().iterator();
+		while (locations.hasNext()) {
+			String location = locations.next();
+			if (!existing.contains(location) && Path.of(location).startsWith(root)) {
+				removed.add(location);
+				locations.remove();
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the number of files in the manifest.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Hashes the contents of a file.
+	 *
+	 * @param file the file
+	 * @return the hash as lowercase hex
+	 * @throws IOException if unable to read the file
+	 */
+	private static String hash(Path file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available.", e);
+		}
+
+		try (InputStream in = Files.newInputStream(file);) {
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * What the manifest knows about one file.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Entry {
+
+		/**
+		 * The file size in bytes
+		 */
+		private final long size;
+
+		/**
+		 * The modification time in milliseconds
+		 */
+		private final long modified;
+
+		/**
+		 * The content hash
+		 */
+		private final String hash;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size     the file size in bytes
+		 * @param modified the modification time in milliseconds
+		 * @param hash     the content hash
+		 */
+		private Entry(long size, long modified, String hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+	}
+}
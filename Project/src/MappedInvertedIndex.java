@@ -0,0 +1,1200 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only {@link InvertedIndex} that searches a binary index file through
+ * memory-mapped buffers instead of loading it onto the heap. Opening a file
+ * only reads the header and the document table; words and postings are read
+ * from the mapping when a search touches them, so startup time depends on the
+ * number of documents and the pages a search needs rather than on the size of
+ * the index.
+ *
+ * The file is written by {@link #write(InvertedIndex, Path)} and laid out as:
+ *
+ * <pre>
+ * header     magic, version, document count, word count, section offsets
+ * postings   for each word in sorted order, a skip entry for each block of
+ *            BLOCK_SIZE documents: last document ID, byte offset of the
+ *            end of the block from the first document, highest frequency;
+ *            then for each document: document ID gap, frequency, position
+ *            byte length, positions (all variable-byte integers, positions
+ *            as in PostingList)
+ * documents  for each document ID: location offset, location length, count
+ *            (-1 for a deleted document)
+ * locations  UTF-8 bytes of every location
+ * impacts    for each word in at least IMPACT_DOCUMENTS documents: the
+ *            highest frequency over length of any document as a double, the
+ *            number of impact groups, then for each group from the highest
+ *            impact down: the impact quantized to 1-255, the number of
+ *            documents, and for each document in increasing order: document
+ *            ID gap, frequency
+ * words      for each word in sorted order: char offset, char length,
+ *            postings offset, document frequency, impacts offset (0 if none)
+ * chars      UTF-16 chars of every word
+ * </pre>
+ *
+ * Words are stored as UTF-16 chars so they can be binary searched with the
+ * same ordering as {@link String#compareTo(String)} without decoding them.
+ *
+ * The skip entries let {@link PostingsIterator#advance(int)} binary search for
+ * the block that can hold a document and start decoding there, instead of
+ * decoding every document before it, and give searches the highest frequency
+ * of each block through {@link PostingsIterator#maxFrequency(int)}.
+ *
+ * Common words also get their documents a second time in impact order, so a
+ * top-k search can score the documents where the word matters most first and
+ * stop once nothing left can make the results; see
+ * {@link #getImpactIterator(int)}. Each document's impact is rounded up to one
+ * of 255 steps of the word's highest impact, so documents with close impacts
+ * share a group and can still be gap encoded.
+ *
+ * @author Jaden
+ *
+ */
+public class MappedInvertedIndex extends InvertedIndex {
+
+	/**
+	 * Identifies an index file
+	 */
+	private static final int MAGIC = 0x53524348;
+
+	/**
+	 * The file format version
+	 */
+	private static final int VERSION = 3;
+
+	/**
+	 * Bytes reserved for the header
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * Bytes per document record
+	 */
+	private static final int DOCUMENT_RECORD = 16;
+
+	/**
+	 * Bytes per word record
+	 */
+	private static final int WORD_RECORD = 28;
+
+	/**
+	 * Documents per block of postings
+	 */
+	private static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Bytes per skip entry
+	 */
+	private static final int SKIP_ENTRY = 12;
+
+	/**
+	 * The fewest documents a word needs to get its postings in impact order too
+	 */
+	private static final int IMPACT_DOCUMENTS = 128;
+
+	/**
+	 * The number of steps impacts are quantized to
+	 */
+	private static final int IMPACT_STEPS = 255;
+
+	/**
+	 * The mapped file
+	 */
+	private final Pages pages;
+
+	/**
+	 * Number of documents in the file
+	 */
+	private final int documentCount;
+
+	/**
+	 * Number of words in the file
+	 */
+	private final int wordCount;
+
+	/**
+	 * Offset of the word records
+	 */
+	private final long wordsOffset;
+
+	/**
+	 * The term ID ranges of the short prefixes, or null until first needed
+	 */
+	private volatile TermRanges ranges;
+
+	/**
+	 * Offset of the word chars
+	 */
+	private final long charsOffset;
+
+	/**
+	 * Constructor
+	 *
+	 * @param documents     the document table read from the file
+	 * @param pages         the mapped file
+	 * @param documentCount number of documents in the file
+	 * @param wordCount     number of words in the file
+	 * @param wordsOffset   offset of the word records
+	 * @param charsOffset   offset of the word chars
+	 */
+	private MappedInvertedIndex(DocumentTable documents, Pages pages, int documentCount, int wordCount,
+			long wordsOffset, long charsOffset) {
+		super(documents);
+		this.pages = pages;
+		this.documentCount = documentCount;
+		this.wordCount = wordCount;
+		this.wordsOffset = wordsOffset;
+		this.charsOffset = charsOffset;
+	}
+
+	/**
+	 * Opens an index file written by {@link #write(InvertedIndex, Path)}.
+	 *
+	 * @param path the index file
+	 * @return the mapped index
+	 * @throws IOException if the file cannot be read or is not an index file
+	 */
+	public static MappedInvertedIndex open(Path path) throws IOException {
+		Pages pages = new Pages(path);
+		if (pages.size() < HEADER_SIZE || pages.getInt(0) != MAGIC) {
+			throw new IOException("Not an index file: " + path);
+		}
+		if (pages.getInt(4) != VERSION) {
+			throw new IOException("Unsupported index file version " + pages.getInt(4) + ": " + path);
+		}
+
+		int documentCount = pages.getInt(8);
+		int wordCount = pages.getInt(12);
+		long documentsOffset = pages.getLong(16);
+		long locationsOffset = pages.getLong(24);
+		long wordsOffset = pages.getLong(32);
+		long charsOffset = pages.getLong(40);
+
+		DocumentTable documents = new DocumentTable();
+		BitSet deleted = new BitSet();
+		for (int id = 0; id < documentCount; id++) {
+			long record = documentsOffset + (long) id * DOCUMENT_RECORD;
+			byte[] location = pages.getBytes(locationsOffset + pages.getLong(record), pages.getInt(record + 8));
+			documents.append(new String(location, StandardCharsets.UTF_8));
+			if (pages.getInt(record + 12) < 0) {
+				deleted.set(id);
+			} else {
+				documents.updateCount(id, pages.getInt(record + 12));
+			}
+		}
+		documents.delete(deleted);
+
+		return new MappedInvertedIndex(documents, pages, documentCount, wordCount, wordsOffset, charsOffset);
+	}
+
+	/**
+	 * Writes an index to a file that {@link #open(Path)} can map. The index is
+	 * written to a temporary file in the same directory that then replaces the
+	 * file, so the file may be the one the index was loaded from and is still
+	 * mapped, and a failed write leaves the old file as it was.
+	 *
+	 * @param index the index to write
+	 * @param path  the file to write
+	 * @throws IOException if unable to write the file
+	 */
+	public static void write(InvertedIndex index, Path path) throws IOException {
+		Path absolute = path.toAbsolutePath();
+		Path temporary = absolute.resolveSibling(absolute.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+		try {
+			writeFile(index, temporary);
+			try {
+				Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Writes an index to a new file.
+	 *
+	 * @param index the index to write
+	 * @param path  the file to create
+	 * @throws IOException if unable to write the file
+	 */
+	private static void writeFile(InvertedIndex index, Path path) throws IOException {
+		DocumentTable documents = index.getDocuments();
+		int documentCount = documents.size();
+		InvertedIndex live = documents.hasDeleted() ? InvertedIndex.without(index, documents.getDeleted()) : index;
+
+		try (Output out = new Output(path)) {
+			out.skip(HEADER_SIZE);
+
+			Set<String> words = live.getWords();
+			int wordCount = words.size();
+			long[] offsets = new long[wordCount];
+			int[] frequencies = new int[wordCount];
+
+			int i = 0;
+			for (String word : words) {
+				offsets[i] = out.position();
+				frequencies[i] = live.getPostingsIterator(word).size();
+
+				int previous = 0;
+				int bytes = 0;
+				int highest = 0;
+				PostingsIterator postings = live.getPostingsIterator(word);
+				for (int j = 0; postings.next(); j++) {
+					int length = postings.positions().getEncoded().remaining();
+					highest = Math.max(highest, postings.frequency());
+					bytes += varIntSize(postings.document() - previous) + varIntSize(postings.frequency())
+							+ varIntSize(length) + length;
+					previous = postings.document();
+
+					if ((j + 1) % BLOCK_SIZE == 0 || j + 1 == frequencies[i]) {
+						out.putInt(previous);
+						out.putInt(bytes);
+						out.putInt(highest);
+						highest = 0;
+					}
+				}
+
+				previous = 0;
+				postings = live.getPostingsIterator(word);
+				while (postings.next()) {
+					ByteBuffer encoded = postings.positions().getEncoded();
+					out.putVarInt(postings.document() - previous);
+					out.putVarInt(postings.frequency());
+					out.putVarInt(encoded.remaining());
+					out.putBytes(encoded);
+					previous = postings.document();
+				}
+				i++;
+			}
+
+			long[] impacts = new long[wordCount];
+			i = 0;
+			for (String word : words) {
+				if (frequencies[i] >= IMPACT_DOCUMENTS) {
+					impacts[i] = out.position();
+					writeImpacts(out, live.getPostingsIterator(word), documents);
+				}
+				i++;
+			}
+
+			long documentsOffset = out.position();
+			byte[][] locations = new byte[documentCount][];
+			long locationOffset = 0;
+			for (int id = 0; id < documentCount; id++) {
+				locations[id] = documents.getLocation(id).getBytes(StandardCharsets.UTF_8);
+				out.putLong(locationOffset);
+				out.putInt(locations[id].length);
+				out.putInt(documents.isDeleted(id) ? -1 : documents.getCount(id));
+				locationOffset += locations[id].length;
+			}
+
+			long locationsOffset = out.position();
+			for (byte[] location : locations) {
+				out.putBytes(ByteBuffer.wrap(location));
+			}
+
+			long wordsOffset = out.position();
+			int charOffset = 0;
+			i = 0;
+			for (String word : words) {
+				out.putInt(charOffset);
+				out.putInt(word.length());
+				out.putLong(offsets[i]);
+				out.putInt(frequencies[i]);
+				out.putLong(impacts[i]);
+				charOffset += word.length();
+				i++;
+			}
+
+			long charsOffset = out.position();
+			for (String word : words) {
+				for (int c = 0; c < word.length(); c++) {
+					out.putChar(word.charAt(c));
+				}
+			}
+
+			out.flush();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(documentCount).putInt(wordCount);
+			header.putLong(documentsOffset).putLong(locationsOffset).putLong(wordsOffset).putLong(charsOffset);
+			header.flip();
+			out.writeAt(header, 0);
+		}
+	}
+
+	/**
+	 * Writes the postings of a word in impact order.
+	 *
+	 * @param out       the file
+	 * @param postings  the postings of the word
+	 * @param documents the document table, for the length of each document
+	 * @throws IOException if unable to write
+	 */
+	private static void writeImpacts(Output out, PostingsIterator postings, DocumentTable documents)
+			throws IOException {
+		ArrayList<int[]> entries = new ArrayList<>(postings.size());
+		double highest = 0;
+		while (postings.next()) {
+			int length = documents.getCount(postings.document());
+			entries.add(new int[] { postings.document(), postings.frequency(), length });
+			highest = Math.max(highest, (double) postings.frequency() / length);
+		}
+
+		int[] groups = new int[IMPACT_STEPS + 1];
+		for (int[] entry : entries) {
+			entry[2] = (int) Math.ceil((double) entry[1] / entry[2] / highest * IMPACT_STEPS);
+			groups[entry[2]]++;
+		}
+		entries.sort((a, b) -> a[2] != b[2] ? Integer.compare(b[2], a[2]) : Integer.compare(a[0], b[0]));
+
+		int count = 0;
+		for (int group : groups) {
+			count += group > 0 ? 1 : 0;
+		}
+		out.putLong(Double.doubleToLongBits(highest));
+		out.putVarInt(count);
+
+		int previous = 0;
+		for (int i = 0; i < entries.size(); i++) {
+			int[] entry = entries.get(i);
+			if (i == 0 || entry[2] != entries.get(i - 1)[2]) {
+				out.putVarInt(entry[2]);
+				out.putVarInt(groups[entry[2]]);
+				previous = 0;
+			}
+			out.putVarInt(entry[0] - previous);
+			out.putVarInt(entry[1]);
+			previous = entry[0];
+		}
+	}
+
+	/**
+	 * Returns the number of bytes a variable-byte integer takes.
+	 *
+	 * @param value a non-negative integer
+	 * @return the number of bytes
+	 */
+	private static int varIntSize(int value) {
+		int bytes = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			bytes++;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the index is read-only
+	 */
+	@Override
+	public void addElement(String word, String file, Integer pos) {
+		throw new UnsupportedOperationException("A mapped index is read-only.");
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the index is read-only
+	 */
+	@Override
+	public void addAll(InvertedIndex other) {
+		throw new UnsupportedOperationException("A mapped index is read-only.");
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the index is read-only
+	 */
+	@Override
+	public void removeDocuments(Collection<String> locations) {
+		throw new UnsupportedOperationException("A mapped index is read-only.");
+	}
+
+	@Override
+	public boolean contains(String word) {
+		return find(word) >= 0;
+	}
+
+	@Override
+	public Set<String> getWords() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<String> iterator() {
+				return words(0, wordCount);
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && find((String) o) >= 0;
+			}
+
+			@Override
+			public int size() {
+				return wordCount;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return wordCount;
+	}
+
+	@Override
+	public BitSet getDocumentIds() {
+		BitSet ids = new BitSet(documentCount);
+		for (int id = 0; id < documentCount; id++) {
+			if (getDocuments().getCount(id) > 0) {
+				ids.set(id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Decodes the postings of a word onto the heap.
+	 *
+	 * @param word the word
+	 * @return a new copy of the postings, or null if the word is not in the file
+	 */
+	@Override
+	protected Postings getPostings(String word) {
+		PostingsIterator iterator = getPostingsIterator(word);
+		if (iterator == null) {
+			return null;
+		}
+
+		Postings postings = new Postings();
+		while (iterator.next()) {
+			postings.append(iterator.document(), iterator.positions());
+		}
+		return postings;
+	}
+
+	@Override
+	protected PostingsIterator getPostingsIterator(String word) {
+		int index = find(word);
+		return index < 0 ? null : getPostingsIterator(index);
+	}
+
+	@Override
+	protected PostingsIterator getPostingsIterator(int term) {
+		long record = wordsOffset + (long) term * WORD_RECORD;
+		return new MappedPostingsIterator(pages.getLong(record + 8), pages.getInt(record + 16));
+	}
+
+	/**
+	 * Returns the documents of a word in impact order, if the word is common
+	 * enough to have them.
+	 */
+	@Override
+	protected ImpactIterator getImpactIterator(int term) {
+		long offset = pages.getLong(wordsOffset + (long) term * WORD_RECORD + 20);
+		return offset == 0 ? null : new MappedImpactIterator(offset);
+	}
+
+	@Override
+	protected int getTermId(String word) {
+		return find(word);
+	}
+
+	@Override
+	protected int[] getTermRange(String prefix) {
+		return ranges().range(prefix, this::word);
+	}
+
+	@Override
+	protected String getTerm(int term) {
+		return word(term);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the index is read-only
+	 */
+	@Override
+	protected void putPostings(String word, Postings postings) {
+		throw new UnsupportedOperationException("A mapped index is read-only.");
+	}
+
+	@Override
+	protected Iterable<String> getWords(String prefix) {
+		int[] range = getTermRange(prefix);
+		return () -> words(range[0], range[1]);
+	}
+
+	/**
+	 * Returns the term ID ranges of the short prefixes, reading every word the
+	 * first time they are needed.
+	 *
+	 * @return the term ID ranges
+	 */
+	private TermRanges ranges() {
+		TermRanges current = ranges;
+		if (current == null) {
+			current = new TermRanges(words(0, wordCount));
+			ranges = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Binary searches for a word.
+	 *
+	 * @param word the word
+	 * @return the index of the word record, or -1 if it is not in the file
+	 */
+	private int find(String word) {
+		int index = lowerBound(word);
+		return index < wordCount && compare(index, word) == 0 ? index : -1;
+	}
+
+	/**
+	 * Finds the first word that is not less than a key.
+	 *
+	 * @param key the key
+	 * @return the index of that word, or the word count if every word is less
+	 */
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = wordCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(middle, key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Compares a stored word to a key like {@link String#compareTo(String)}.
+	 *
+	 * @param index the index of the stored word
+	 * @param key   the key
+	 * @return negative, zero or positive as the stored word is less than, equal
+	 *         to or greater than the key
+	 */
+	private int compare(int index, String key) {
+		long record = wordsOffset + (long) index * WORD_RECORD;
+		long start = charsOffset + 2L * pages.getInt(record);
+		int length = pages.getInt(record + 4);
+		int shared = Math.min(length, key.length());
+		for (int i = 0; i < shared; i++) {
+			int difference = pages.getChar(start + 2L * i) - key.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - key.length();
+	}
+
+	/**
+	 * Decodes the word at an index.
+	 *
+	 * @param index the index of the word record
+	 * @return the word
+	 */
+	private String word(int index) {
+		long record = wordsOffset + (long) index * WORD_RECORD;
+		long start = charsOffset + 2L * pages.getInt(record);
+		char[] chars = new char[pages.getInt(record + 4)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = pages.getChar(start + 2L * i);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Iterates over words in order.
+	 *
+	 * @param from the index of the first word
+	 * @param to   one past the index of the last word
+	 * @return an iterator over the words
+	 */
+	private Iterator<String> words(int from, int to) {
+		return new Iterator<>() {
+			private int index = from;
+
+			@Override
+			public boolean hasNext() {
+				return index < to;
+			}
+
+			@Override
+			public String next() {
+				if (index >= to) {
+					throw new NoSuchElementException();
+				}
+				return word(index++);
+			}
+		};
+	}
+
+	/**
+	 * Walks the postings of one word straight from the mapped file.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class MappedPostingsIterator implements PostingsIterator {
+
+		/**
+		 * Offset of the skip entries
+		 */
+		private final long skips;
+
+		/**
+		 * Offset of the first document entry
+		 */
+		private final long start;
+
+		/**
+		 * Number of blocks
+		 */
+		private final int blocks;
+
+		/**
+		 * Offset of the next document entry
+		 */
+		private long offset;
+
+		/**
+		 * Documents left to read
+		 */
+		private int remaining;
+
+		/**
+		 * Number of documents in the postings
+		 */
+		private final int size;
+
+		/**
+		 * The current document ID
+		 */
+		private int document;
+
+		/**
+		 * The current frequency
+		 */
+		private int frequency;
+
+		/**
+		 * Offset of the current positions
+		 */
+		private long positionsOffset;
+
+		/**
+		 * Byte length of the current positions
+		 */
+		private int positionsLength;
+
+		/**
+		 * Constructor
+		 *
+		 * @param offset    offset of the skip entries
+		 * @param documents number of documents in the postings
+		 */
+		private MappedPostingsIterator(long offset, int documents) {
+			this.skips = offset;
+			this.blocks = (documents + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			this.start = offset + (long) blocks * SKIP_ENTRY;
+			this.offset = start;
+			this.remaining = documents;
+			this.size = documents;
+			this.document = 0;
+		}
+
+		@Override
+		public boolean next() {
+			if (remaining == 0) {
+				return false;
+			}
+			remaining--;
+			document += readVarInt();
+			frequency = readVarInt();
+			positionsLength = readVarInt();
+			positionsOffset = offset;
+			offset += positionsLength;
+			return true;
+		}
+
+		/**
+		 * Skips every block that ends before the target, then decodes from there.
+		 */
+		@Override
+		public boolean advance(int target) {
+			int block = block(target);
+			if (block == blocks) {
+				remaining = 0;
+				return false;
+			}
+
+			if (block > (size - remaining) / BLOCK_SIZE) {
+				offset = start + pages.getInt(skip(block - 1) + 4);
+				document = pages.getInt(skip(block - 1));
+				remaining = size - block * BLOCK_SIZE;
+			}
+
+			while (next()) {
+				if (document >= target) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int maxFrequency(int target) {
+			int block = block(target);
+			return block == blocks ? 0 : pages.getInt(skip(block) + 8);
+		}
+
+		/**
+		 * Finds the block that would hold a target, by binary search over the
+		 * blocks from the one holding the next document on.
+		 *
+		 * @param target the document ID
+		 * @return the first block whose last document is at or after the target,
+		 *         or the number of blocks if there is none
+		 */
+		private int block(int target) {
+			int low = remaining == 0 ? blocks : (size - remaining) / BLOCK_SIZE;
+			int high = blocks;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (pages.getInt(skip(middle)) < target) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the offset of a skip entry.
+		 *
+		 * @param block the block
+		 * @return the offset of its skip entry
+		 */
+		private long skip(int block) {
+			return skips + (long) block * SKIP_ENTRY;
+		}
+
+		@Override
+		public int document() {
+			return document;
+		}
+
+		@Override
+		public int frequency() {
+			return frequency;
+		}
+
+		@Override
+		public PostingList positions() {
+			return new PostingList(pages.getBytes(positionsOffset, positionsLength), frequency);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Reads a variable-byte integer and moves past it.
+		 *
+		 * @return the integer
+		 */
+		private int readVarInt() {
+			int value = pages.getVarInt(offset);
+			offset += varIntSize(value);
+			return value;
+		}
+	}
+
+	/**
+	 * Walks the impact groups of a word, from the highest impact down.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class MappedImpactIterator implements ImpactIterator {
+
+		/**
+		 * The highest frequency over length of the word in any document
+		 */
+		private final double highest;
+
+		/**
+		 * Offset of the next document entry or group
+		 */
+		private long offset;
+
+		/**
+		 * Groups left to read
+		 */
+		private int groups;
+
+		/**
+		 * Documents left to read in the current group
+		 */
+		private int remaining;
+
+		/**
+		 * The quantized impact of the current group
+		 */
+		private int step;
+
+		/**
+		 * The current document ID
+		 */
+		private int document;
+
+		/**
+		 * The current frequency
+		 */
+		private int frequency;
+
+		/**
+		 * Constructor
+		 *
+		 * @param offset offset of the impacts of the word
+		 */
+		private MappedImpactIterator(long offset) {
+			this.highest = Double.longBitsToDouble(pages.getLong(offset));
+			this.offset = offset + 8;
+			this.groups = readVarInt();
+			this.remaining = 0;
+		}
+
+		@Override
+		public boolean next() {
+			if (remaining == 0) {
+				if (groups == 0) {
+					return false;
+				}
+				groups--;
+				step = readVarInt();
+				remaining = readVarInt();
+				document = 0;
+			}
+			remaining--;
+			document += readVarInt();
+			frequency = readVarInt();
+			return true;
+		}
+
+		@Override
+		public int document() {
+			return document;
+		}
+
+		@Override
+		public int frequency() {
+			return frequency;
+		}
+
+		@Override
+		public double impact() {
+			return highest * step / IMPACT_STEPS;
+		}
+
+		/**
+		 * Reads a variable-byte integer and moves past it.
+		 *
+		 * @return the integer
+		 */
+		private int readVarInt() {
+			int value = pages.getVarInt(offset);
+			offset += varIntSize(value);
+			return value;
+		}
+	}
+
+	/**
+	 * A read-only mapping of a whole file, split into buffers of at most
+	 * {@link #PAGE_SIZE} bytes since a single mapping is limited to 2 GB.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Pages {
+
+		/**
+		 * Bytes per mapped buffer
+		 */
+		private static final int PAGE_SIZE = 1 << 30;
+
+		/**
+		 * The mapped buffers
+		 */
+		private final MappedByteBuffer[] buffers;
+
+		/**
+		 * The file size
+		 */
+		private final long size;
+
+		/**
+		 * Maps a file.
+		 *
+		 * @param path the file
+		 * @throws IOException if unable to map the file
+		 */
+		private Pages(Path path) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				size = channel.size();
+				buffers = new MappedByteBuffer[(int) ((size + PAGE_SIZE - 1) / PAGE_SIZE)];
+				for (int i = 0; i < buffers.length; i++) {
+					long start = (long) i * PAGE_SIZE;
+					buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(PAGE_SIZE, size - start));
+				}
+			}
+		}
+
+		/**
+		 * @return the file size
+		 */
+		private long size() {
+			return size;
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @return the byte at the offset
+		 */
+		private byte get(long offset) {
+			return buffers[(int) (offset / PAGE_SIZE)].get((int) (offset % PAGE_SIZE));
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @return the variable-byte integer at the offset
+		 */
+		private int getVarInt(long offset) {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = get(offset++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @return the big-endian char at the offset
+		 */
+		private char getChar(long offset) {
+			return (char) ((get(offset) & 0xFF) << 8 | (get(offset + 1) & 0xFF));
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @return the big-endian int at the offset
+		 */
+		private int getInt(long offset) {
+			int page = (int) (offset / PAGE_SIZE);
+			int index = (int) (offset % PAGE_SIZE);
+			if (index + 4 <= buffers[page].limit()) {
+				return buffers[page].getInt(index);
+			}
+			return (get(offset) & 0xFF) << 24 | (get(offset + 1) & 0xFF) << 16 | (get(offset + 2) & 0xFF) << 8
+					| (get(offset + 3) & 0xFF);
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @return the big-endian long at the offset
+		 */
+		private long getLong(long offset) {
+			return (long) getInt(offset) << 32 | (getInt(offset + 4) & 0xFFFFFFFFL);
+		}
+
+		/**
+		 * @param offset the file offset
+		 * @param length the number of bytes
+		 * @return a copy of the bytes
+		 */
+		private byte[] getBytes(long offset, int length) {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = get(offset + i);
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * Buffered, position-tracking output to a file channel.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Output implements AutoCloseable {
+
+		/**
+		 * The file being written
+		 */
+		private final FileChannel channel;
+
+		/**
+		 * Bytes waiting to be written
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Creates a file for writing.
+		 *
+		 * @param path the file, which must not exist yet
+		 * @throws IOException if unable to create the file
+		 */
+		private Output(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.BIG_ENDIAN);
+		}
+
+		/**
+		 * @return the file offset of the next byte written
+		 * @throws IOException if unable to read the channel position
+		 */
+		private long position() throws IOException {
+			return channel.position() + buffer.position();
+		}
+
+		/**
+		 * @param bytes number of zero bytes to write
+		 * @throws IOException if unable to write
+		 */
+		private void skip(int bytes) throws IOException {
+			for (int i = 0; i < bytes; i++) {
+				ensure(1);
+				buffer.put((byte) 0);
+			}
+		}
+
+		/**
+		 * @param value the value to write
+		 * @throws IOException if unable to write
+		 */
+		private void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		/**
+		 * @param value the value to write
+		 * @throws IOException if unable to write
+		 */
+		private void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		/**
+		 * @param value the value to write
+		 * @throws IOException if unable to write
+		 */
+		private void putChar(char value) throws IOException {
+			ensure(2);
+			buffer.putChar(value);
+		}
+
+		/**
+		 * Writes a non-negative variable-byte integer.
+		 *
+		 * @param value the value to write
+		 * @throws IOException if unable to write
+		 */
+		private void putVarInt(int value) throws IOException {
+			ensure(5);
+			while ((value & ~0x7F) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		/**
+		 * @param bytes the bytes to write
+		 * @throws IOException if unable to write
+		 */
+		private void putBytes(ByteBuffer bytes) throws IOException {
+			while (bytes.hasRemaining()) {
+				if (!buffer.hasRemaining()) {
+					flush();
+				}
+				int count = Math.min(bytes.remaining(), buffer.remaining());
+				ByteBuffer slice = bytes.duplicate();
+				slice.limit(slice.position() + count);
+				buffer.put(slice);
+				bytes.position(bytes.position() + count);
+			}
+		}
+
+		/**
+		 * Writes bytes at a fixed offset, without moving the position.
+		 *
+		 * @param bytes  the bytes to write
+		 * @param offset the file offset
+		 * @throws IOException if unable to write
+		 */
+		private void writeAt(ByteBuffer bytes, long offset) throws IOException {
+			while (bytes.hasRemaining()) {
+				offset += channel.write(bytes, offset);
+			}
+		}
+
+		/**
+		 * Makes room in the buffer.
+		 *
+		 * @param bytes the bytes about to be written
+		 * @throws IOException if unable to write
+		 */
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		/**
+		 * Writes out the buffer.
+		 *
+		 * @throws IOException if unable to write
+		 */
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,276 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * A large text file split into chunks that can be indexed one at a time or at
+ * the same time by different threads. Chunks end just after a line break, so
+ * every line lies in one chunk and is split into the same words as when the
+ * file is read line by line. Each chunk is memory-mapped and decoded on its
+ * own, and its lines are read straight from the decoded buffer without making a
+ * string for each line.
+ *
+ * A chunk indexed on its own numbers its words from a given position. When the
+ * chunks are indexed in parallel from position 0, putting their indexes back
+ * together with {@link InvertedIndex#addShifted(InvertedIndex, int)} and the
+ * number of words before each chunk gives the positions a single pass over
+ * the file would.
+ *
+ * @author Jaden
+ *
+ */
+public class MappedTextFile {
+
+	/**
+	 * The usual number of bytes in a chunk
+	 */
+	public static final int CHUNK_SIZE = 4 << 20;
+
+	/**
+	 * The number of bytes searched at a time for the end of a line
+	 */
+	private static final int SEARCH_SIZE = 64 << 10;
+
+	/**
+	 * The file
+	 */
+	private final Path path;
+
+	/**
+	 * The location of the file in the index
+	 */
+	private final String location;
+
+	/**
+	 * The byte offset where each chunk starts, followed by the size of the file
+	 */
+	private final long[] bounds;
+
+	/**
+	 * Constructor that splits the file into chunks of about {@link #CHUNK_SIZE}
+	 * bytes.
+	 *
+	 * @param path the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public MappedTextFile(Path path) throws IOException {
+		this(path, CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param path      the file
+	 * @param chunkSize the usual number of bytes in a chunk; chunks are longer
+	 *                  when a line goes past it
+	 * @throws IOException if the file cannot be read
+	 */
+	public MappedTextFile(Path path, int chunkSize) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+		}
+		this.path = path;
+		this.location = path.toString();
+
+		ArrayList<Long> starts = new ArrayList<>();
+		long size;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			size = channel.size();
+			long start = 0;
+			while (start < size) {
+				starts.add(start);
+				start = chunkEnd(channel, start + chunkSize, size);
+			}
+		}
+
+		this.bounds = new long[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) {
+			bounds[i] = starts.get(i);
+		}
+		bounds[starts.size()] = size;
+	}
+
+	/**
+	 * Checks if a file is big enough to be split into more than one chunk.
+	 *
+	 * @param path the file
+	 * @return true if the file is larger than {@link #CHUNK_SIZE}
+	 */
+	public static boolean isLarge(Path path) {
+		try {
+			return Files.isRegularFile(path) && Files.size(path) > CHUNK_SIZE;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Finds the offset just after the first line break at or after an offset.
+	 * A carriage return followed by a line feed counts as one line break.
+	 *
+	 * @param channel the file
+	 * @param from    the offset to search from
+	 * @param size    the size of the file
+	 * @return the offset after the line break, or the size of the file if there
+	 *         is none
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long chunkEnd(FileChannel channel, long from, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SEARCH_SIZE);
+		long offset = from;
+		while (offset < size) {
+			buffer.clear();
+			int read = channel.read(buffer, offset);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n') {
+					return offset + i + 1;
+				}
+				if (b == '\r') {
+					long next = offset + i + 1;
+					if (i + 1 < read) {
+						return buffer.get(i + 1) == '\n' ? next + 1 : next;
+					}
+					ByteBuffer one = ByteBuffer.allocate(1);
+					return channel.read(one, next) == 1 && one.get(0) == '\n' ? next + 1 : next;
+				}
+			}
+			offset += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of chunks.
+	 *
+	 * @return the chunk count
+	 */
+	public int getChunkCount() {
+		return bounds.length - 1;
+	}
+
+	/**
+	 * Returns the file.
+	 *
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the location of the file in the index.
+	 *
+	 * @return the location
+	 */
+	public String getLocation() {
+		return location;
+	}
+
+	/**
+	 * Maps a chunk and decodes it.
+	 *
+	 * @param chunk the chunk, from 0
+	 * @return the text of the chunk
+	 * @throws IOException if the chunk cannot be read or is not valid UTF-8
+	 */
+	public CharBuffer read(int chunk) throws IOException {
+		long start = bounds[chunk];
+		long length = bounds[chunk + 1] - start;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("A line of " + location + " is too long to map.");
+		}
+
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+		return StandardCharsets.UTF_8.newDecoder().decode(mapped);
+	}
+
+	/**
+	 * Returns the end of the line that starts at an index: the index of the next
+	 * line feed or carriage return, or the end of the text.
+	 *
+	 * @param text the text
+	 * @param from the index where the line starts
+	 * @return the index after the last character of the line
+	 */
+	public static int lineEnd(CharBuffer text, int from) {
+		int limit = text.limit();
+		int end = from;
+		while (end < limit && text.get(end) != '\n' && text.get(end) != '\r') {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the start of the line after a line break, treating a carriage
+	 * return followed by a line feed as one break, the way
+	 * {@link java.io.BufferedReader#readLine()} does.
+	 *
+	 * @param text the text
+	 * @param end  the index of the line break, as returned by
+	 *             {@link #lineEnd(CharBuffer, int)}
+	 * @return the index where the next line starts
+	 */
+	public static int nextLine(CharBuffer text, int end) {
+		if (end + 1 < text.limit() && text.get(end) == '\r' && text.get(end + 1) == '\n') {
+			return end + 2;
+		}
+		return end + 1;
+	}
+
+	/**
+	 * Stems the words of a chunk and adds them to an index, numbering them from
+	 * after a position.
+	 *
+	 * @param chunk    the chunk, from 0
+	 * @param index    the index to add to
+	 * @param position the position of the word before the chunk, or 0 to number
+	 *                 its words from 1
+	 * @return the position of the last word of the chunk, which is the position
+	 *         given if it has no words
+	 * @throws IOException if the chunk cannot be read or is not valid UTF-8
+	 */
+	public int addChunk(int chunk, InvertedIndex index, int position) throws IOException {
+		CharBuffer text = read(chunk);
+		Stemmer stemmer = StemCache.SHARED;
+		TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
+		for (int line = 0, end; line < text.limit(); line = nextLine(text, end)) {
+			end = lineEnd(text, line);
+			tokenizer.reset(text, line, end);
+			String word;
+			while ((word = tokenizer.next()) != null) {
+				index.addElement(stemmer.stem(word).toString(), location, ++position);
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Stems the words of every chunk in order and adds them to an index.
+	 *
+	 * @param index the index to add to
+	 * @throws IOException if the file cannot be read or is not valid UTF-8
+	 */
+	public void addTo(InvertedIndex index) throws IOException {
+		int position = 0;
+		for (int chunk = 0; chunk < getChunkCount(); chunk++) {
+			position = addChunk(chunk, index, position);
+		}
+	}
+}
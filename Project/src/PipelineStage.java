@@ -0,0 +1,377 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * One stage of a pipeline: a pool of worker threads taking items from a
+ * bounded queue, doing some work on each and handing what it makes to the next
+ * stage. When the queue of the next stage is full the workers wait, so a slow
+ * stage holds back the ones before it instead of letting work pile up.
+ *
+ * Each stage keeps count of the items it did, the time its workers spent on
+ * them, the time they spent waiting on the next stage, and how full its queue
+ * was each time an item was added, so the size of each pool can be tuned to the
+ * stage that holds the others back.
+ *
+ * @author Jaden
+ *
+ * @param <T> the type of the items
+ */
+public class PipelineStage<T> {
+
+	/**
+	 * Put in the queue once for each worker after the last item, to tell the
+	 * workers to stop
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * The name of the stage, for reports
+	 */
+	private final String name;
+
+	/**
+	 * The items waiting for a worker, then one {@link #END} for each worker
+	 */
+	private final BlockingQueue<Object> queue;
+
+	/**
+	 * The number of items the queue holds
+	 */
+	private final int capacity;
+
+	/**
+	 * The work done on each item, which passes anything it makes to the consumer
+	 */
+	private final BiConsumer<T, Consumer<T>> work;
+
+	/**
+	 * The stage the items made go to, or null for the last stage
+	 */
+	private final PipelineStage<T> next;
+
+	/**
+	 * The worker threads
+	 */
+	private final Thread[] workers;
+
+	/**
+	 * The number of workers still running
+	 */
+	private final AtomicInteger running;
+
+	/**
+	 * Opened once every worker has stopped
+	 */
+	private final CountDownLatch stopped;
+
+	/**
+	 * The number of items done
+	 */
+	private final LongAdder items;
+
+	/**
+	 * The nanoseconds workers spent on items, including waiting on the next stage
+	 */
+	private final LongAdder busy;
+
+	/**
+	 * The nanoseconds workers spent waiting for room in the queue of the next
+	 * stage
+	 */
+	private final LongAdder blocked;
+
+	/**
+	 * The number of items added to the queue
+	 */
+	private final LongAdder puts;
+
+	/**
+	 * The sum of the queue sizes right after each item was added
+	 */
+	private final LongAdder occupancy;
+
+	/**
+	 * The largest queue size seen
+	 */
+	private final LongAccumulator peak;
+
+	/**
+	 * When the first item was taken, in nanoseconds, or 0 if none was
+	 */
+	private final AtomicLong start;
+
+	/**
+	 * When the last worker stopped, in nanoseconds, or 0 if one is still running
+	 */
+	private volatile long end;
+
+	/**
+	 * Constructor that starts the workers.
+	 *
+	 * @param name     the name of the stage, for reports
+	 * @param workers  the number of worker threads, at least 1
+	 * @param capacity the number of items the queue holds, at least 1
+	 * @param work     the work done on each item, which passes anything it makes
+	 *                 to the consumer it is given
+	 * @param next     the stage the items made go to, or null if this is the last
+	 *                 stage
+	 */
+	public PipelineStage(String name, int workers, int capacity, BiConsumer<T, Consumer<T>> work,
+			PipelineStage<T> next) {
+		if (workers < 1 || capacity < 1) {
+			throw new IllegalArgumentException("A stage needs at least one worker and one queue slot.");
+		}
+		this.name = name;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.capacity = capacity;
+		this.work = work;
+		this.next = next;
+		this.workers = new Thread[workers];
+		this.running = new AtomicInteger(workers);
+		this.stopped = new CountDownLatch(1);
+		this.items = new LongAdder();
+		this.busy = new LongAdder();
+		this.blocked = new LongAdder();
+		this.puts = new LongAdder();
+		this.occupancy = new LongAdder();
+		this.peak = new LongAccumulator(Math::max, 0);
+		this.start = new AtomicLong(0);
+		this.end = 0;
+
+		for (int i = 0; i < workers; i++) {
+			this.workers[i] = new Worker(name + "-" + i);
+			this.workers[i].start();
+		}
+	}
+
+	/**
+	 * Adds an item, waiting while the queue is full. The item is dropped if the
+	 * thread is interrupted while it waits.
+	 *
+	 * @param item the item
+	 */
+	public void put(T item) {
+		try {
+			queue.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		int size = queue.size();
+		puts.increment();
+		occupancy.add(size);
+		peak.accumulate(size);
+	}
+
+	/**
+	 * Tells the workers to stop once they have done every item added so far,
+	 * waiting for room in the queue if it is full. When the last one stops, the
+	 * next stage is closed too. No items may be added afterwards.
+	 */
+	public void close() {
+		for (int i = 0; i < workers.length; i++) {
+			try {
+				queue.put(END);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Waits until the workers of this stage and every later stage have stopped.
+	 */
+	public void await() {
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (next != null) {
+			next.await();
+		}
+	}
+
+	/**
+	 * Returns the name of the stage.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 *
+	 * @return the number of workers
+	 */
+	public int getWorkers() {
+		return workers.length;
+	}
+
+	/**
+	 * Returns the number of items done so far.
+	 *
+	 * @return the item count
+	 */
+	public long getItems() {
+		return items.sum();
+	}
+
+	/**
+	 * Returns the time from the first item taken until the last worker stopped,
+	 * or until now if a worker is still running.
+	 *
+	 * @return the time in seconds, or 0 if no item was taken
+	 */
+	public double getSeconds() {
+		long first = start.get();
+		if (first == 0) {
+			return 0;
+		}
+		long last = end == 0 ? System.nanoTime() : end;
+		return (last - first) / 1e9;
+	}
+
+	/**
+	 * Returns the number of items done per second.
+	 *
+	 * @return the throughput, or 0 if no item was taken
+	 */
+	public double getThroughput() {
+		double seconds = getSeconds();
+		return seconds > 0 ? getItems() / seconds : 0;
+	}
+
+	/**
+	 * Returns the share of the workers' time spent on items, not counting time
+	 * spent waiting on the next stage.
+	 *
+	 * @return the utilization from 0 to 1
+	 */
+	public double getUtilization() {
+		double available = getSeconds() * 1e9 * workers.length;
+		return available > 0 ? Math.min(1, (busy.sum() - blocked.sum()) / available) : 0;
+	}
+
+	/**
+	 * Returns the share of the workers' time spent waiting for room in the
+	 * queue of the next stage.
+	 *
+	 * @return the blocked share from 0 to 1
+	 */
+	public double getBlocked() {
+		double available = getSeconds() * 1e9 * workers.length;
+		return available > 0 ? Math.min(1, blocked.sum() / available) : 0;
+	}
+
+	/**
+	 * Returns how many items were in the queue on average right after one was
+	 * added.
+	 *
+	 * @return the average queue size
+	 */
+	public double getAverageOccupancy() {
+		long count = puts.sum();
+		return count > 0 ? (double) occupancy.sum() / count : 0;
+	}
+
+	/**
+	 * Returns the largest number of items seen in the queue.
+	 *
+	 * @return the peak queue size
+	 */
+	public long getPeakOccupancy() {
+		return peak.get();
+	}
+
+	/**
+	 * Returns the number of items the queue holds.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d items in %.3f s (%.1f/s), %d workers %.0f%% busy %.0f%% blocked, queue %.1f avg %d peak of %d",
+				name, getItems(), getSeconds(), getThroughput(), workers.length, getUtilization() * 100,
+				getBlocked() * 100, getAverageOccupancy(), getPeakOccupancy(), getCapacity());
+	}
+
+	/**
+	 * A worker thread of the stage. Workers are daemon threads, so a stage that
+	 * is never closed does not keep the program from exiting.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class Worker extends Thread {
+
+		/**
+		 * Hands items made to the next stage, timing how long it waits for room
+		 */
+		private final Consumer<T> output;
+
+		/**
+		 * Constructor
+		 *
+		 * @param name the name of the thread
+		 */
+		public Worker(String name) {
+			super(name);
+			setDaemon(true);
+			this.output = next == null ? item -> {
+			} : item -> {
+				long waiting = System.nanoTime();
+				next.put(item);
+				blocked.add(System.nanoTime() - waiting);
+			};
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				while (true) {
+					Object item = queue.take();
+					if (item == END) {
+						break;
+					}
+					long time = System.nanoTime();
+					start.compareAndSet(0, time);
+					try {
+						work.accept((T) item, output);
+					} catch (RuntimeException e) {
+						// catch runtime exceptions to avoid losing the worker
+						System.err.println("Warning: Pipeline stage " + name + " encountered an exception while running.");
+					}
+					busy.add(System.nanoTime() - time);
+					items.increment();
+				}
+			} catch (InterruptedException e) {
+				System.err.println("Warning: Pipeline stage " + name + " interrupted.");
+				Thread.currentThread().interrupt();
+			} finally {
+				if (running.decrementAndGet() == 0) {
+					end = System.nanoTime();
+					if (next != null) {
+						next.close();
+					}
+					stopped.countDown();
+				}
+			}
+		}
+	}
+}
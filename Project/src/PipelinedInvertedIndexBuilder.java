@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * Builds a {@link ThreadSafeInvertedIndex} with a pipeline of four stages, each
+ * with its own pool of workers: reading files, splitting them into words,
+ * stemming the words, and adding them to local indexes that are merged by an
+ * {@link IndexReducer}. Waiting on the disk is kept apart from the work that
+ * needs a core, the queues between stages are bounded, and every stage reports
+ * how much it did and how full its queue was, so the pools can be sized for
+ * the machine.
+ *
+ * Files larger than {@link MappedTextFile#CHUNK_SIZE} go through the pipeline
+ * as chunks that are put back together once the last one is indexed.
+ *
+ * @author Jaden
+ *
+ */
+public class PipelinedInvertedIndexBuilder extends InvertedIndexBuilder {
+
+	/**
+	 * The number of items each worker may have waiting in the queue of its stage
+	 */
+	public static final int QUEUE_PER_WORKER = 2;
+
+	/**
+	 * The default number of workers for reading, tokenizing, stemming and
+	 * indexing
+	 */
+	public static final int[] DEFAULT_WORKERS = { 1, 2, 2, 1 };
+
+	/**
+	 * The {@link ThreadSafeInvertedIndex} being built
+	 */
+	private final ThreadSafeInvertedIndex index;
+
+	/**
+	 * Merges the local indexes of the files before they reach the index
+	 */
+	private final IndexReducer reducer;
+
+	/**
+	 * The number of workers for each stage
+	 */
+	private final int[] workers;
+
+	/**
+	 * The stages of the current build, from reading to indexing, or of the last
+	 * build once it is done
+	 */
+	private List<PipelineStage<Part>> stages;
+
+	/**
+	 * Whether the stages are running
+	 */
+	private boolean running;
+
+	/**
+	 * Constructor with the default number of workers for each stage
+	 *
+	 * @param index the thread safe index
+	 */
+	public PipelinedInvertedIndexBuilder(ThreadSafeInvertedIndex index) {
+		this(index, DEFAULT_WORKERS);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param index   the thread safe index
+	 * @param workers the number of workers for reading, tokenizing, stemming and
+	 *                indexing, each at least 1
+	 * @throws IllegalArgumentException if there are not four positive numbers
+	 */
+	public PipelinedInvertedIndexBuilder(ThreadSafeInvertedIndex index, int[] workers) {
+		super(index);
+		if (workers.length != 4) {
+			throw new IllegalArgumentException("The pipeline needs a number of workers for each of its 4 stages.");
+		}
+		for (int count : workers) {
+			if (count < 1) {
+				throw new IllegalArgumentException("Every stage needs at least one worker.");
+			}
+		}
+		this.index = index;
+		this.reducer = new IndexReducer();
+		this.workers = workers.clone();
+		this.stages = List.of();
+		this.running = false;
+	}
+
+	/**
+	 * Parses the number of workers for each stage, like "1,2,2,1".
+	 *
+	 * @param text the numbers for reading, tokenizing, stemming and indexing,
+	 *             separated by commas
+	 * @return the numbers
+	 * @throws IllegalArgumentException if there are not four positive numbers
+	 */
+	public static int[] parseWorkers(String text) {
+		String[] counts = text.split(",");
+		if (counts.length != DEFAULT_WORKERS.length) {
+			throw new IllegalArgumentException("The pipeline needs a number of workers for each of its 4 stages.");
+		}
+		int[] workers = new int[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			workers[i] = Integer.parseInt(counts[i].strip());
+			if (workers[i] < 1) {
+				throw new IllegalArgumentException("Every stage needs at least one worker.");
+			}
+		}
+		return workers;
+	}
+
+	@Override
+	public void build(Path path) throws IOException {
+		try {
+			super.build(path);
+		} finally {
+			finish();
+		}
+	}
+
+	/**
+	 * Sends a file into the pipeline, waiting while the first stage is full.
+	 */
+	@Override
+	public void addPath(Path path) throws IOException {
+		if (!running) {
+			start();
+		}
+		stages.get(0).put(new Part(path));
+	}
+
+	/**
+	 * Waits for every file sent into the pipeline to go through it, stops the
+	 * workers and adds the merged result to the index in one step.
+	 */
+	@Override
+	protected void finish() {
+		if (!running) {
+			return;
+		}
+		stages.get(0).close();
+		stages.get(0).await();
+		running = false;
+		index.addAll(reducer.drain());
+	}
+
+	/**
+	 * Returns the stages of the current or last build, from reading to indexing,
+	 * for their reports.
+	 *
+	 * @return the stages, or an empty list before the first build
+	 */
+	public List<PipelineStage<Part>> getStages() {
+		return stages;
+	}
+
+	/**
+	 * Starts the workers of every stage.
+	 */
+	private void start() {
+		PipelineStage<Part> indexing = stage("index", workers[3], this::index, null);
+		PipelineStage<Part> stemming = stage("stem", workers[2], this::stem, indexing);
+		PipelineStage<Part> tokenizing = stage("tokenize", workers[1], this::tokenize, stemming);
+		PipelineStage<Part> reading = stage("read", workers[0], this::read, tokenizing);
+		stages = List.of(reading, tokenizing, stemming, indexing);
+		running = true;
+	}
+
+	/**
+	 * Makes a stage with a queue sized for its workers.
+	 *
+	 * @param name  the name of the stage
+	 * @param count the number of workers
+	 * @param work  the work done on each part
+	 * @param next  the next stage, or null
+	 * @return the stage
+	 */
+	private static PipelineStage<Part> stage(String name, int count, BiConsumer<Part, Consumer<Part>> work,
+			PipelineStage<Part> next) {
+		return new PipelineStage<>(name, count, count * QUEUE_PER_WORKER, work, next);
+	}
+
+	/**
+	 * Reads a file, or maps each chunk of a large file, and decodes it.
+	 *
+	 * @param part   the part naming the file
+	 * @param output where the text goes
+	 */
+	private void read(Part part, Consumer<Part> output) {
+		IndexReducer.Parts parts = null;
+		int chunk = 0;
+		try {
+			if (MappedTextFile.isLarge(part.path)) {
+				MappedTextFile file = new MappedTextFile(part.path);
+				parts = reducer.newParts(file.getChunkCount());
+				for (; chunk < file.getChunkCount(); chunk++) {
+					output.accept(new Part(part.path, parts, chunk, file.read(chunk)));
+				}
+			} else {
+				ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(part.path));
+				part.text = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+				output.accept(part);
+			}
+		} catch (IOException | RuntimeException e) {
+			boolean added = true;
+			for (; parts != null && chunk < parts.size(); chunk++) {
+				added &= parts.finished(chunk, null, 0);
+			}
+			if (parts == null || !added) {
+				System.out.println("There is an error adding a path: " + part.path);
+			}
+		}
+	}
+
+	/**
+	 * Splits text into cleaned words one line at a time.
+	 *
+	 * @param part   the part with its text
+	 * @param output where the words go
+	 */
+	private void tokenize(Part part, Consumer<Part> output) {
+		try {
+			CharBuffer text = part.text;
+			TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
+			ArrayList<String> words = new ArrayList<>();
+			for (int line = 0, end; line < text.limit(); line = MappedTextFile.nextLine(text, end)) {
+				end = MappedTextFile.lineEnd(text, line);
+				tokenizer.reset(text, line, end);
+				String word;
+				while ((word = tokenizer.next()) != null) {
+					words.add(word);
+				}
+			}
+			part.text = null;
+			part.words = words.toArray(new String[0]);
+		} catch (RuntimeException e) {
+			failed(part);
+			return;
+		}
+		output.accept(part);
+	}
+
+	/**
+	 * Stems each word in place.
+	 *
+	 * @param part   the part with its words
+	 * @param output where the stems go
+	 */
+	private void stem(Part part, Consumer<Part> output) {
+		try {
+			Stemmer stemmer = StemCache.SHARED;
+			String[] words = part.words;
+			for (int i = 0; i < words.length; i++) {
+				words[i] = stemmer.stem(words[i]).toString();
+			}
+		} catch (RuntimeException e) {
+			failed(part);
+			return;
+		}
+		output.accept(part);
+	}
+
+	/**
+	 * Adds the stems to a local index and hands it to the reducer, or to the
+	 * other chunks of its file.
+	 *
+	 * @param part   the part with its stems
+	 * @param output unused, since this is the last stage
+	 */
+	private void index(Part part, Consumer<Part> output) {
+		InvertedIndex local = reducer.newLocal();
+		String location = part.path.toString();
+		String[] words = part.words;
+		try {
+			for (int i = 0; i < words.length; i++) {
+				local.addElement(words[i], location, i + 1);
+			}
+		} catch (IOException | RuntimeException e) {
+			failed(part);
+			return;
+		}
+
+		if (part.parts == null) {
+			reducer.add(local);
+		} else if (!part.parts.finished(part.chunk, local, words.length)) {
+			System.out.println("There is an error adding a path: " + part.path);
+		}
+	}
+
+	/**
+	 * Drops a part that could not be processed. A failed chunk is reported to
+	 * the other chunks of its file, so the file is left out once they are all
+	 * in instead of waiting for the chunk forever.
+	 *
+	 * @param part the part that failed
+	 */
+	private void failed(Part part) {
+		if (part.parts == null || !part.parts.finished(part.chunk, null, 0)) {
+			System.out.println("There is an error adding a path: " + part.path);
+		}
+	}
+
+	/**
+	 * A file, or one chunk of a large file, on its way through the pipeline.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class Part {
+		/** The file */
+		private final Path path;
+
+		/** Collects the indexes of the chunks of a large file, or null */
+		private final IndexReducer.Parts parts;
+
+		/** The chunk of a large file, or 0 */
+		private final int chunk;
+
+		/** The text, once read and until it is split into words */
+		private CharBuffer text;
+
+		/** The words, and then their stems */
+		private String[] words;
+
+		/**
+		 * @param path the file to read
+		 */
+		private Part(Path path) {
+			this(path, null, 0, null);
+		}
+
+		/**
+		 * @param path  the file
+		 * @param parts collects the indexes of the chunks of the file, or null
+		 * @param chunk the chunk
+		 * @param text  the text of the chunk
+		 */
+		private Part(Path path, IndexReducer.Parts parts, int chunk, CharBuffer text) {
+			this.path = path;
+			this.parts = parts;
+			this.chunk = chunk;
+			this.text = text;
+			this.words = null;
+		}
+	}
+}
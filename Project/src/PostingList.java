@@ -0,0 +1,417 @@
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact, sorted set of word positions for a single word in a single
+ * location. Positions are stored as the gaps between neighbouring positions,
+ * each written as a variable-byte integer (7 bits per byte, high bit set on
+ * every byte but the last), in one byte array that grows in place. Appending
+ * a position larger than the last one, which is how files are read, only
+ * writes the new gap.
+ *
+ * @author Jaden
+ *
+ */
+public class PostingList extends AbstractSet<Integer> {
+
+	/**
+	 * The initial number of bytes reserved for a new list
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The encoded gaps
+	 */
+	private byte[] data;
+
+	/**
+	 * The number of bytes of data in use
+	 */
+	private int length;
+
+	/**
+	 * The number of positions in the list
+	 */
+	private int size;
+
+	/**
+	 * The largest position in the list
+	 */
+	private int last;
+
+	/**
+	 * Constructor for an empty list
+	 */
+	public PostingList() {
+		this.data = new byte[INITIAL_CAPACITY];
+		this.length = 0;
+		this.size = 0;
+		this.last = 0;
+	}
+
+	/**
+	 * Constructor for a list read back from its encoded form.
+	 *
+	 * @param data the encoded gaps, which the list takes ownership of
+	 * @param size the number of positions encoded in data
+	 *
+	 * @see #getEncoded()
+	 */
+	public PostingList(byte[] data, int size) {
+		this.data = data;
+		this.length = data.length;
+		this.size = size;
+		this.last = 0;
+
+		PositionIterator iterator = iterator();
+		while (iterator.hasNext()) {
+			this.last = iterator.nextInt();
+		}
+	}
+
+	/**
+	 * Adds a position to the list.
+	 *
+	 * @param position the position to add, must not be negative
+	 * @return true if the position was not already in the list
+	 */
+	public boolean add(int position) {
+		if (position < 0) {
+			throw new IllegalArgumentException("Positions must not be negative: " + position);
+		}
+
+		if (size == 0 || position > last) {
+			append(position);
+			return true;
+		}
+
+		if (position == last || contains(position)) {
+			return false;
+		}
+
+		int[] positions = decode(position);
+		Arrays.sort(positions);
+		encode(positions, positions.length);
+		return true;
+	}
+
+	@Override
+	public boolean add(Integer position) {
+		return add(position.intValue());
+	}
+
+	/**
+	 * Adds every position of the other list to this list.
+	 *
+	 * @param other the list to add
+	 */
+	public void addAll(PostingList other) {
+		if (other.size == 0) {
+			return;
+		}
+
+		if (size == 0 || other.first() > last) {
+			ensureCapacity(other.length + 5);
+			PositionIterator iterator = other.iterator();
+			while (iterator.hasNext()) {
+				append(iterator.nextInt());
+			}
+			return;
+		}
+
+		int[] mine = positions();
+		int[] theirs = other.positions();
+		int[] merged = new int[mine.length + theirs.length];
+		int i = 0, j = 0, k = 0;
+		while (i < mine.length || j < theirs.length) {
+			int next;
+			if (j == theirs.length || (i < mine.length && mine[i] <= theirs[j])) {
+				next = mine[i++];
+			} else {
+				next = theirs[j++];
+			}
+			if (k == 0 || merged[k - 1] != next) {
+				merged[k++] = next;
+			}
+		}
+		encode(merged, k);
+	}
+
+	/**
+	 * Appends every position of the other list moved up by an offset, as when the
+	 * other list holds the positions of a later part of the same file counted
+	 * from the start of that part. Only the first gap changes, so the rest of the
+	 * encoded gaps are copied as they are.
+	 *
+	 * @param other  the list to append
+	 * @param offset the amount to add to each of its positions
+	 * @throws IllegalArgumentException if the moved positions do not all come
+	 *                                  after the last position of this list
+	 */
+	public void addAll(PostingList other, int offset) {
+		if (other.size == 0) {
+			return;
+		}
+
+		int first = other.first() + offset;
+		if (first < 0 || (size > 0 && first <= last)) {
+			throw new IllegalArgumentException("Positions must be appended in increasing order: " + first);
+		}
+
+		int skip = 0;
+		while ((other.data[skip++] & 0x80) != 0) {
+			// skips the first gap, which is the first position
+		}
+		append(first);
+
+		int rest = other.length - skip;
+		ensureCapacity(rest);
+		System.arraycopy(other.data, skip, data, length, rest);
+		length += rest;
+		size += other.size - 1;
+		last = other.last + offset;
+	}
+
+	/**
+	 * Checks if the list contains a position.
+	 *
+	 * @param position the position to look for
+	 * @return true if the position is in the list
+	 */
+	public boolean contains(int position) {
+		if (size == 0 || position > last) {
+			return false;
+		}
+
+		PositionIterator iterator = iterator();
+		while (iterator.hasNext()) {
+			int next = iterator.nextInt();
+			if (next >= position) {
+				return next == position;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the smallest position in the list.
+	 *
+	 * @return the first position
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return iterator().nextInt();
+	}
+
+	/**
+	 * Returns the largest position in the list.
+	 *
+	 * @return the last position
+	 * @throws NoSuchElementException if the list is empty
+	 */
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return last;
+	}
+
+	/**
+	 * Decodes the list into a new sorted array.
+	 *
+	 * @return the positions in increasing order
+	 */
+	public int[] positions() {
+		return Arrays.copyOf(decode(0), size);
+	}
+
+	/**
+	 * Shrinks the backing array to the bytes in use.
+	 */
+	public void trimToSize() {
+		if (data.length > length) {
+			data = Arrays.copyOf(data, length);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the encoded positions, which can be turned back
+	 * into a list with {@link #PostingList(byte[], int)}.
+	 *
+	 * @return the encoded gaps
+	 */
+	public ByteBuffer getEncoded() {
+		return ByteBuffer.wrap(data, 0, length).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the number of bytes used by the encoded positions.
+	 *
+	 * @return the encoded size in bytes
+	 */
+	public int encodedLength() {
+		return length;
+	}
+
+	@Override
+	public PositionIterator iterator() {
+		return new PositionIterator();
+	}
+
+	/**
+	 * Decodes the list into an array with one spare slot at the end.
+	 *
+	 * @param extra the value to put in the spare slot
+	 * @return the decoded positions followed by extra
+	 */
+	private int[] decode(int extra) {
+		int[] positions = new int[size + 1];
+		PositionIterator iterator = iterator();
+		for (int i = 0; i < size; i++) {
+			positions[i] = iterator.nextInt();
+		}
+		positions[size] = extra;
+		return positions;
+	}
+
+	/**
+	 * Replaces the contents of the list with sorted, unique positions.
+	 *
+	 * @param positions the positions to encode
+	 * @param count     how many of the positions to use
+	 */
+	private void encode(int[] positions, int count) {
+		length = 0;
+		size = 0;
+		last = 0;
+		for (int i = 0; i < count; i++) {
+			append(positions[i]);
+		}
+	}
+
+	/**
+	 * Appends a position that is larger than every position in the list.
+	 *
+	 * @param position the position to append
+	 */
+	private void append(int position) {
+		int gap = size == 0 ? position : position - last;
+		ensureCapacity(5);
+		while ((gap & ~0x7F) != 0) {
+			data[length++] = (byte) ((gap & 0x7F) | 0x80);
+			gap >>>= 7;
+		}
+		data[length++] = (byte) gap;
+		last = position;
+		size++;
+	}
+
+	/**
+	 * Makes room for more bytes, growing the array by half when it is full.
+	 *
+	 * @param bytes the number of bytes about to be written
+	 */
+	private void ensureCapacity(int bytes) {
+		if (length + bytes > data.length) {
+			data = Arrays.copyOf(data, Math.max(length + bytes, data.length + (data.length >> 1)));
+		}
+	}
+
+	/**
+	 * Iterates over the positions in increasing order without boxing.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public class PositionIterator implements Iterator<Integer> {
+
+		/**
+		 * Offset of the next byte to decode
+		 */
+		private int offset = 0;
+
+		/**
+		 * Number of positions decoded so far
+		 */
+		private int read = 0;
+
+		/**
+		 * The last position decoded
+		 */
+		private int current = 0;
+
+		@Override
+		public boolean hasNext() {
+			return read < size;
+		}
+
+		/**
+		 * Returns the next position.
+		 *
+		 * @return the next position
+		 */
+		public int nextInt() {
+			if (read >= size) {
+				throw new NoSuchElementException();
+			}
+
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[offset++];
+				gap |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			current = read == 0 ? gap : current + gap;
+			read++;
+			return current;
+		}
+
+		@Override
+		public Integer next() {
+			return nextInt();
+		}
+
+		/**
+		 * Moves to the first position at or after a target, decoding the ones
+		 * before it without returning them. Returns right away without decoding
+		 * anything if the target is past the largest position.
+		 *
+		 * @param target the position to move to
+		 * @return the first position not less than the target, or -1 if there is
+		 *         none
+		 */
+		public int advance(int target) {
+			if (target > last) {
+				read = size;
+				return -1;
+			}
+
+			while (read < size) {
+				int next = nextInt();
+				if (next >= target) {
+					return next;
+				}
+			}
+			return -1;
+		}
+	}
+}
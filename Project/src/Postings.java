@@ -0,0 +1,308 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The postings of a single word: the IDs of the documents it appears in, in
+ * increasing order, each paired with the positions of the word in that
+ * document.
+ *
+ * @author Jaden
+ *
+ */
+public class Postings {
+
+	/**
+	 * The initial number of documents reserved for a new word
+	 */
+	private static final int INITIAL_CAPACITY = 2;
+
+	/**
+	 * Document IDs in increasing order
+	 */
+	private int[] documents;
+
+	/**
+	 * Positions in each document, parallel to documents
+	 */
+	private PostingList[] positions;
+
+	/**
+	 * Number of documents in use
+	 */
+	private int size;
+
+	/**
+	 * Constructor for a word with no documents
+	 */
+	public Postings() {
+		this.documents = new int[INITIAL_CAPACITY];
+		this.positions = new PostingList[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the positions for a document, adding the document if it is not
+	 * already in the postings. Adding the largest document so far only appends.
+	 *
+	 * @param document the document ID
+	 * @return the positions of the word in that document
+	 */
+	public PostingList add(int document) {
+		if (size > 0 && documents[size - 1] == document) {
+			return positions[size - 1];
+		}
+
+		int index = size == 0 || document > documents[size - 1] ? -(size + 1) : indexOf(document);
+		if (index >= 0) {
+			return positions[index];
+		}
+
+		PostingList list = new PostingList();
+		insert(-(index + 1), document, list);
+		return list;
+	}
+
+	/**
+	 * Adds a document after every document already in the postings.
+	 *
+	 * @param document  the document ID, larger than any already added
+	 * @param positions the positions of the word in that document
+	 * @throws IllegalArgumentException if the document is out of order
+	 */
+	public void append(int document, PostingList positions) {
+		if (size > 0 && document <= documents[size - 1]) {
+			throw new IllegalArgumentException("Documents must be appended in increasing order: " + document);
+		}
+		insert(size, document, positions);
+	}
+
+	/**
+	 * Adds every document and position of the other postings to these postings.
+	 *
+	 * @param other the postings to add
+	 * @param remap maps the other postings' document IDs to these document IDs,
+	 *              or null if they already use the same IDs
+	 */
+	public void addAll(Postings other, int[] remap) {
+		for (int i = 0; i < other.size; i++) {
+			int document = remap == null ? other.documents[i] : remap[other.documents[i]];
+			int index = size == 0 || document > documents[size - 1] ? -(size + 1) : indexOf(document);
+			if (index >= 0) {
+				positions[index].addAll(other.positions[i]);
+			} else {
+				insert(-(index + 1), document, other.positions[i]);
+			}
+		}
+	}
+
+	/**
+	 * Merges two postings into new postings, walking both document lists once.
+	 * Position lists found in only one of them are shared, not copied.
+	 *
+	 * @param first  the first postings
+	 * @param second the second postings
+	 * @return new postings holding the documents of both
+	 */
+	public static Postings merge(Postings first, Postings second) {
+		Postings merged = new Postings();
+		int capacity = Math.max(INITIAL_CAPACITY, first.size + second.size);
+		merged.documents = new int[capacity];
+		merged.positions = new PostingList[capacity];
+
+		int i = 0, j = 0, k = 0;
+		while (i < first.size || j < second.size) {
+			if (j == second.size || (i < first.size && first.documents[i] < second.documents[j])) {
+				merged.documents[k] = first.documents[i];
+				merged.positions[k++] = first.positions[i++];
+			} else if (i == first.size || second.documents[j] < first.documents[i]) {
+				merged.documents[k] = second.documents[j];
+				merged.positions[k++] = second.positions[j++];
+			} else {
+				PostingList list = new PostingList();
+				list.addAll(first.positions[i++]);
+				list.addAll(second.positions[j]);
+				merged.documents[k] = second.documents[j++];
+				merged.positions[k++] = list;
+			}
+		}
+		merged.size = k;
+		return merged;
+	}
+
+	/**
+	 * Copies postings without some documents. Position lists are shared, not
+	 * copied.
+	 *
+	 * @param postings  the postings to copy
+	 * @param documents the IDs of the documents to leave out
+	 * @return new postings without those documents, which may be empty
+	 */
+	public static Postings without(Postings postings, BitSet documents) {
+		Postings copy = new Postings();
+		for (int i = 0; i < postings.size; i++) {
+			if (!documents.get(postings.documents[i])) {
+				copy.insert(copy.size, postings.documents[i], postings.positions[i]);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Checks if any of some documents are in the postings.
+	 *
+	 * @param documents the document IDs to look for
+	 * @return true if at least one of them is in the postings
+	 */
+	public boolean containsAny(BitSet documents) {
+		for (int i = 0; i < size; i++) {
+			if (documents.get(this.documents[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds where a document is stored.
+	 *
+	 * @param document the document ID
+	 * @return the index of the document, or (-(insertion point) - 1) if it is not
+	 *         in the postings
+	 *
+	 * @see Arrays#binarySearch(int[], int, int, int)
+	 */
+	public int indexOf(int document) {
+		return Arrays.binarySearch(documents, 0, size, document);
+	}
+
+	/**
+	 * Checks if the word appears in a document.
+	 *
+	 * @param document the document ID
+	 * @return true if the document is in the postings
+	 */
+	public boolean contains(int document) {
+		return indexOf(document) >= 0;
+	}
+
+	/**
+	 * Returns the positions of the word in a document.
+	 *
+	 * @param document the document ID
+	 * @return the positions, or null if the document is not in the postings
+	 */
+	public PostingList get(int document) {
+		int index = indexOf(document);
+		return index >= 0 ? positions[index] : null;
+	}
+
+	/**
+	 * Returns the document ID stored at an index.
+	 *
+	 * @param index the index, from 0 to size() - 1
+	 * @return the document ID
+	 */
+	public int document(int index) {
+		return documents[index];
+	}
+
+	/**
+	 * Returns the positions stored at an index.
+	 *
+	 * @param index the index, from 0 to size() - 1
+	 * @return the positions in that document
+	 */
+	public PostingList positions(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * Returns the number of documents the word appears in.
+	 *
+	 * @return the number of documents
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns an iterator over the documents of these postings.
+	 *
+	 * @return a new iterator positioned before the first document
+	 */
+	public PostingsIterator iterator() {
+		return new PostingsIterator() {
+			private int index = -1;
+
+			@Override
+			public boolean next() {
+				return ++index < size;
+			}
+
+			@Override
+			public boolean advance(int target) {
+				int low = index + 1;
+				int step = 1;
+				while (low + step < size && documents[low + step] < target) {
+					low += step;
+					step <<= 1;
+				}
+				int found = Arrays.binarySearch(documents, low, Math.min(low + step + 1, size), target);
+				index = found >= 0 ? found : -(found + 1);
+				return index < size;
+			}
+
+			@Override
+			public int document() {
+				return documents[index];
+			}
+
+			@Override
+			public int frequency() {
+				return positions[index].size();
+			}
+
+			@Override
+			public PostingList positions() {
+				return positions[index];
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Shrinks the backing arrays, and every position list, to the space in use.
+	 */
+	public void trimToSize() {
+		documents = Arrays.copyOf(documents, size);
+		positions = Arrays.copyOf(positions, size);
+		for (int i = 0; i < size; i++) {
+			positions[i].trimToSize();
+		}
+	}
+
+	/**
+	 * Inserts a document at an index, shifting later documents up by one.
+	 *
+	 * @param index    where the document goes
+	 * @param document the document ID
+	 * @param list     the positions in the document
+	 */
+	private void insert(int index, int document, PostingList list) {
+		if (size == documents.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+			documents = Arrays.copyOf(documents, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+
+		System.arraycopy(documents, index, documents, index + 1, size - index);
+		System.arraycopy(positions, index, positions, index + 1, size - index);
+		documents[index] = document;
+		positions[index] = list;
+		size++;
+	}
+}
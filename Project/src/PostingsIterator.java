@@ -0,0 +1,76 @@
+/**
+ * Walks the documents of one word's postings in increasing document ID order.
+ * A new iterator is positioned before the first document, so
+ * {@link #next()} must be called before anything else.
+ *
+ * @author Jaden
+ *
+ */
+public interface PostingsIterator {
+
+	/**
+	 * Moves to the next document.
+	 *
+	 * @return true if there was another document, false at the end
+	 */
+	public boolean next();
+
+	/**
+	 * Returns the ID of the current document.
+	 *
+	 * @return the document ID
+	 */
+	public int document();
+
+	/**
+	 * Returns how many times the word appears in the current document.
+	 *
+	 * @return the number of positions in the current document
+	 */
+	public int frequency();
+
+	/**
+	 * Returns the positions of the word in the current document.
+	 *
+	 * @return the positions
+	 */
+	public PostingList positions();
+
+	/**
+	 * Returns the number of documents in the postings, however far the iterator
+	 * has moved.
+	 *
+	 * @return the document frequency of the word
+	 */
+	public int size();
+
+	/**
+	 * Moves to the first document at or after a target, which must be after the
+	 * current document. The default calls {@link #next()} until it gets there.
+	 *
+	 * @param target the document ID to move to
+	 * @return true if there was such a document, false at the end
+	 */
+	public default boolean advance(int target) {
+		while (next()) {
+			if (document() >= target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns an upper bound on how many times the word appears in the first
+	 * document at or after a target, which must be after the current document,
+	 * without moving. Postings stored in blocks return the highest frequency of
+	 * the block that would hold it; the default knows nothing and returns
+	 * Integer.MAX_VALUE.
+	 *
+	 * @param target the document ID
+	 * @return the upper bound, or 0 if there is no such document
+	 */
+	public default int maxFrequency(int target) {
+		return Integer.MAX_VALUE;
+	}
+}
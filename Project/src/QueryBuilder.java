@@ -5,7 +5,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import opennlp.tools.stemmer.snowball.SnowballStemmer;
 
@@ -26,6 +25,11 @@ public class QueryBuilder implements QueryBuilderInterface {
 	 */
 	private final TreeMap<String, ArrayList<InvertedIndex.Result>> querySet;
 
+	/**
+	 * The index version each query was searched against
+	 */
+	private final TreeMap<String, Long> versions;
+
 	/**
 	 * Snowball Stemmer
 	 */
@@ -39,6 +43,7 @@ public class QueryBuilder implements QueryBuilderInterface {
 	public QueryBuilder(InvertedIndex index) {
 		this.index = index;
 		this.querySet = new TreeMap<>();
+		this.versions = new TreeMap<>();
 	}
 
 	/**
@@ -67,6 +72,17 @@ public class QueryBuilder implements QueryBuilderInterface {
 
 	}
 
+	/**
+	 * A getter for the index version of a query line
+	 *
+	 * @param queryLine the query
+	 * @return the index version, or -1 if the query was not searched
+	 */
+	@Override
+	public long getQueryVersion(String queryLine) {
+		return this.versions.getOrDefault(queryLine, -1L);
+	}
+
 	/**
 	 * will write query from path
 	 *
@@ -83,23 +99,26 @@ public class QueryBuilder implements QueryBuilderInterface {
 	 *
 	 * @param line        The line we are parsing.
 	 * @param exactSearch Wether we are doing exact search or not.
+	 * @param k           the most results to keep, or {@link InvertedIndex#ALL}
 	 */
 	@Override
-	public void makeQueryLine(String line, boolean exactSearch) {
-		TreeSet<String> queries = TextFileStemmer.uniqueStems(line);
+	public void makeQueryLine(String line, boolean exactSearch, int k) {
+		SearchQuery query = SearchQuery.parse(line);
 
-		if (queries.size() == 0) {
+		if (query.isEmpty()) {
 			return;
 		}
 
-		String joined = String.join(" ", queries);
+		String joined = query.toString();
 
 		if (querySet.containsKey(joined)) {
 			return;
 		}
 
-		ArrayList<InvertedIndex.Result> local = index.search(queries, exactSearch);
+		long version = index.getVersion();
+		ArrayList<InvertedIndex.Result> local = index.search(query, exactSearch, k);
 		this.querySet.put(joined, local);
+		this.versions.put(joined, version);
 	}
 
 	/**
@@ -28,6 +28,15 @@ public interface QueryBuilderInterface {
 	 */
 	public List<InvertedIndex.Result> getQueryResults(String queryLine);
 
+	/**
+	 * a getter for the version of the index a query was searched against
+	 *
+	 * @param queryLine the query
+	 * @return the index version the results came from, or -1 if the query was
+	 *         not searched
+	 */
+	public long getQueryVersion(String queryLine);
+
 	/**
 	 * Will write to from path filename
 	 *
@@ -44,10 +53,24 @@ public interface QueryBuilderInterface {
 	 * @throws IOException
 	 */
 	public default void makeQueryFile(Path path, boolean exactSearch) throws IOException {
+		makeQueryFile(path, exactSearch, InvertedIndex.ALL);
+	}
+
+	/**
+	 * Gets queries from the input path and performs the searches, keeping only
+	 * the best results of each.
+	 *
+	 * @param path        The path to the Query file.
+	 * @param exactSearch True if we are doing exact search.
+	 * @param k           the most results to keep per query, or
+	 *                    {@link InvertedIndex#ALL}
+	 * @throws IOException
+	 */
+	public default void makeQueryFile(Path path, boolean exactSearch, int k) throws IOException {
 		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);) {
 			String query;
 			while ((query = reader.readLine()) != null) {
-				makeQueryLine(query, exactSearch);
+				makeQueryLine(query, exactSearch, k);
 			}
 		}
 	}
@@ -63,6 +86,17 @@ public interface QueryBuilderInterface {
 	 * @param line        the line being made
 	 * @param exactSearch whether or not exactSearch
 	 */
-	void makeQueryLine(String line, boolean exactSearch);
+	public default void makeQueryLine(String line, boolean exactSearch) {
+		makeQueryLine(line, exactSearch, InvertedIndex.ALL);
+	}
+
+	/**
+	 * will make query line, keeping only the best results
+	 *
+	 * @param line        the line being made
+	 * @param exactSearch whether or not exactSearch
+	 * @param k           the most results to keep, or {@link InvertedIndex#ALL}
+	 */
+	void makeQueryLine(String line, boolean exactSearch, int k);
 
 }
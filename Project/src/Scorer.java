@@ -0,0 +1,213 @@
+/**
+ * Scores documents for a search. Each word searched adds a weight to a
+ * document from how often it appears there, the length of the document and how
+ * many documents have the word, and the document's score is worked out from
+ * those weights once every word has been looked up.
+ *
+ * Weights must never go down as the frequency goes up, since searches bound
+ * the score a word can add from its highest frequencies.
+ *
+ * @author Jaden
+ *
+ */
+public interface Scorer {
+
+	/**
+	 * The score searches use unless told otherwise: matches over length
+	 */
+	public static final Scorer DEFAULT = new MatchRatio();
+
+	/**
+	 * Returns how much one word adds to the score of one document.
+	 *
+	 * @param frequency         the number of times the word appears in the
+	 *                          document, at least 1
+	 * @param length            the word count of the document
+	 * @param documentFrequency the number of documents with the word, or 0 if
+	 *                          {@link #usesDocumentFrequency()} is false
+	 * @param documents         the document table, for the number of documents
+	 *                          and their average length
+	 * @return the weight of the word in the document
+	 */
+	public double weight(int frequency, int length, int documentFrequency, DocumentTable documents);
+
+	/**
+	 * Returns an upper bound on the weight of a word in any document.
+	 *
+	 * @param ratio             the highest frequency over length of the word in
+	 *                          any document
+	 * @param documentFrequency the number of documents with the word, or 0 if
+	 *                          {@link #usesDocumentFrequency()} is false
+	 * @param documents         the document table
+	 * @return the upper bound
+	 */
+	public double bound(double ratio, int documentFrequency, DocumentTable documents);
+
+	/**
+	 * Returns the score of a document. The default is the sum of the weights.
+	 *
+	 * @param count   the total number of matches in the document
+	 * @param weights the sum of the weights of the words in the document
+	 * @param length  the word count of the document
+	 * @return the score
+	 */
+	public default double score(int count, double weights, int length) {
+		return weights;
+	}
+
+	/**
+	 * Checks if the weights depend on how many documents have a word. Searches
+	 * only count them for scorers that do.
+	 *
+	 * @return true if the document frequency is used
+	 */
+	public default boolean usesDocumentFrequency() {
+		return true;
+	}
+
+	/**
+	 * Returns the scorer with a name: "matches" for {@link MatchRatio}, "tfidf"
+	 * for {@link TfIdf} or "bm25" for {@link BM25}.
+	 *
+	 * @param name the name, ignoring case
+	 * @return the scorer
+	 * @throws IllegalArgumentException if there is no scorer with that name
+	 */
+	public static Scorer forName(String name) {
+		switch (name.toLowerCase()) {
+		case "matches":
+			return DEFAULT;
+		case "tfidf":
+			return new TfIdf();
+		case "bm25":
+			return new BM25();
+		default:
+			throw new IllegalArgumentException("Unknown scorer: " + name);
+		}
+	}
+
+	/**
+	 * The inverse document frequency of a word, which is higher for rarer words
+	 * and never below 0.
+	 *
+	 * @param documentFrequency the number of documents with the word
+	 * @param documents         the document table
+	 * @return the inverse document frequency
+	 */
+	private static double idf(int documentFrequency, DocumentTable documents) {
+		int size = Math.max(documents.getCountedSize(), documentFrequency);
+		return Math.log(1 + (size - documentFrequency + 0.5) / (documentFrequency + 0.5));
+	}
+
+	/**
+	 * Scores a document by its number of matches over its word count, so every
+	 * match counts the same no matter which word it is.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class MatchRatio implements Scorer {
+
+		@Override
+		public double weight(int frequency, int length, int documentFrequency, DocumentTable documents) {
+			return (double) frequency / length;
+		}
+
+		@Override
+		public double bound(double ratio, int documentFrequency, DocumentTable documents) {
+			return ratio;
+		}
+
+		/**
+		 * Divides the count once instead of adding up the weights, so equal
+		 * ratios always give equal scores.
+		 */
+		@Override
+		public double score(int count, double weights, int length) {
+			return (double) count / length;
+		}
+
+		@Override
+		public boolean usesDocumentFrequency() {
+			return false;
+		}
+	}
+
+	/**
+	 * Scores a document by the frequency over length of each word, times how
+	 * rare the word is.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class TfIdf implements Scorer {
+
+		@Override
+		public double weight(int frequency, int length, int documentFrequency, DocumentTable documents) {
+			return (double) frequency / length * idf(documentFrequency, documents);
+		}
+
+		@Override
+		public double bound(double ratio, int documentFrequency, DocumentTable documents) {
+			return ratio * idf(documentFrequency, documents);
+		}
+	}
+
+	/**
+	 * Scores a document with Okapi BM25: each extra match of a word adds less
+	 * than the one before, documents longer than average need more matches for
+	 * the same weight, and rarer words weigh more.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class BM25 implements Scorer {
+
+		/**
+		 * How quickly extra matches of a word stop adding weight
+		 */
+		private final double k1;
+
+		/**
+		 * How much the length of a document counts, from 0 to 1
+		 */
+		private final double b;
+
+		/**
+		 * Constructor with the usual parameters, k1 = 1.2 and b = 0.75
+		 */
+		public BM25() {
+			this(1.2, 0.75);
+		}
+
+		/**
+		 * Constructor
+		 *
+		 * @param k1 how quickly extra matches of a word stop adding weight
+		 * @param b  how much the length of a document counts, from 0 to 1
+		 */
+		public BM25(double k1, double b) {
+			this.k1 = k1;
+			this.b = b;
+		}
+
+		@Override
+		public double weight(int frequency, int length, int documentFrequency, DocumentTable documents) {
+			double average = documents.getAverageCount();
+			double norm = k1 * (1 - b + (average > 0 ? b * length / average : 0));
+			return idf(documentFrequency, documents) * frequency * (k1 + 1) / (frequency + norm);
+		}
+
+		/**
+		 * Since the frequency is at most the ratio times the length, the weight is
+		 * highest when both grow without limit, which leaves only the ratio and
+		 * the average length.
+		 */
+		@Override
+		public double bound(double ratio, int documentFrequency, DocumentTable documents) {
+			double average = documents.getAverageCount();
+			double saturation = ratio > 0 && average > 0 ? (k1 + 1) / (1 + k1 * b / (ratio * average)) : k1 + 1;
+			return idf(documentFrequency, documents) * saturation;
+		}
+	}
+}
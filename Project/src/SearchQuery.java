@@ -0,0 +1,768 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import opennlp.tools.stemmer.Stemmer;
+
+/**
+ * A parsed query line: the words to look for anywhere in a document, plus any
+ * quoted phrases ("a b c") whose words must appear next to each other in order,
+ * and any proximity pairs (a NEAR/3 b) whose words must appear within that many
+ * positions of each other. A document matches if it matches any of them, and
+ * every match counts towards its score.
+ *
+ * These can be combined with AND, OR, NOT and parentheses. OR binds loosest and
+ * NOT tightest; things written next to each other are ORed, except that a NOT
+ * right after something means AND NOT, so "apple banana NOT cherry" is "apple OR
+ * (banana AND NOT cherry)". A query with AND or NOT has a {@link Condition}
+ * every result must meet, and its negated words and phrases do not count
+ * towards the score.
+ *
+ * A line without quotes, NEAR, parentheses or operators has exactly the words
+ * {@link TextFileStemmer#uniqueStems(String)} would give it.
+ *
+ * @author Jaden
+ *
+ */
+public class SearchQuery {
+
+	/**
+	 * Matches the operator of a proximity pair like "word NEAR/3 word"
+	 */
+	private static final Pattern NEAR_REGEX = Pattern.compile("NEAR/(\\d+)");
+
+	/**
+	 * The words to look for anywhere
+	 */
+	private final TreeSet<String> words;
+
+	/**
+	 * The phrases and proximity pairs, by how they are written
+	 */
+	private final TreeMap<String, Phrase> phrases;
+
+	/**
+	 * The condition a document must meet to be a result, or null if matching
+	 * any word or phrase is enough
+	 */
+	private Condition condition;
+
+	/**
+	 * Constructor for an empty query
+	 */
+	public SearchQuery() {
+		this.words = new TreeSet<>();
+		this.phrases = new TreeMap<>();
+		this.condition = null;
+	}
+
+	/**
+	 * Parses a query line, stemming with the shared {@link StemCache}.
+	 *
+	 * @param line the line
+	 * @return the parsed query
+	 */
+	public static SearchQuery parse(String line) {
+		return parse(line, StemCache.SHARED);
+	}
+
+	/**
+	 * Parses a query line.
+	 *
+	 * @param line    the line
+	 * @param stemmer the stemmer to use
+	 * @return the parsed query
+	 */
+	public static SearchQuery parse(String line, Stemmer stemmer) {
+		SearchQuery query = new SearchQuery();
+		Parser parser = new Parser(query, tokens(line), stemmer);
+		Condition condition = parser.parse();
+		if (parser.filtered) {
+			query.condition = condition;
+		}
+		return query;
+	}
+
+	/**
+	 * Splits a query line into quoted phrases (kept with their quotes),
+	 * parentheses and the words between them. A quote without a closing quote
+	 * separates words like a space.
+	 *
+	 * @param line the line
+	 * @return the tokens in order
+	 */
+	private static List<String> tokens(String line) {
+		ArrayList<String> tokens = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			int close = c == '"' ? line.indexOf('"', i + 1) : -1;
+			if (c == '"' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+				if (start >= 0) {
+					tokens.add(line.substring(start, i));
+					start = -1;
+				}
+				if (close >= 0) {
+					tokens.add(line.substring(i, close + 1));
+					i = close;
+				} else if (c == '(' || c == ')') {
+					tokens.add(String.valueOf(c));
+				}
+			} else if (start < 0) {
+				start = i;
+			}
+		}
+		if (start >= 0) {
+			tokens.add(line.substring(start));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Stems words.
+	 *
+	 * @param words   the cleaned words
+	 * @param stemmer the stemmer to use
+	 * @return the stems, in the same order
+	 */
+	private static List<String> stem(String[] words, Stemmer stemmer) {
+		ArrayList<String> stems = new ArrayList<>(words.length);
+		for (String word : words) {
+			stems.add(stemmer.stem(word).toString());
+		}
+		return stems;
+	}
+
+	/**
+	 * Returns the words to look for anywhere in a document.
+	 *
+	 * @return the stemmed words in sorted order
+	 */
+	public Set<String> getWords() {
+		return Collections.unmodifiableSet(words);
+	}
+
+	/**
+	 * Returns the phrases and proximity pairs.
+	 *
+	 * @return the phrases, sorted by how they are written
+	 */
+	public Collection<Phrase> getPhrases() {
+		return Collections.unmodifiableCollection(phrases.values());
+	}
+
+	/**
+	 * Returns the condition a document must meet to be a result. Only the words
+	 * and phrases that are not negated count towards its score.
+	 *
+	 * @return the condition, or null if the query has no AND or NOT and matching
+	 *         any word or phrase is enough
+	 */
+	public Condition getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Checks if the query has any phrases or proximity pairs.
+	 *
+	 * @return true if there is at least one
+	 */
+	public boolean hasPhrases() {
+		return !phrases.isEmpty();
+	}
+
+	/**
+	 * Checks if the query has nothing to look for.
+	 *
+	 * @return true if there are no words and no phrases
+	 */
+	public boolean isEmpty() {
+		return words.isEmpty() && phrases.isEmpty();
+	}
+
+	/**
+	 * Returns the query as it is written in results: the words joined by spaces,
+	 * followed by the phrases, or the condition if there is one.
+	 */
+	@Override
+	public String toString() {
+		if (condition != null) {
+			return condition.toString();
+		}
+		ArrayList<String> parts = new ArrayList<>(words);
+		parts.addAll(phrases.keySet());
+		return String.join(" ", parts);
+	}
+
+	/**
+	 * Words that must appear in order next to each other, or two words that must
+	 * appear within some distance of each other in either order.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class Phrase {
+
+		/**
+		 * The stemmed words in order
+		 */
+		private final List<String> words;
+
+		/**
+		 * The most positions apart the words of a proximity pair may be, or -1
+		 * for a phrase
+		 */
+		private final int distance;
+
+		/**
+		 * Constructor
+		 *
+		 * @param words    the stemmed words in order
+		 * @param distance the most positions apart the two words of a proximity
+		 *                 pair may be, or -1 for a phrase
+		 */
+		private Phrase(List<String> words, int distance) {
+			this.words = List.copyOf(words);
+			this.distance = distance;
+		}
+
+		/**
+		 * Returns the words.
+		 *
+		 * @return the stemmed words in order
+		 */
+		public List<String> getWords() {
+			return words;
+		}
+
+		/**
+		 * Counts the matches in one document. For a phrase, that is the number of
+		 * places the whole phrase starts; for a proximity pair, the number of times
+		 * the first word has the second one close enough.
+		 *
+		 * Each position list is only walked forward, skipping straight to the
+		 * position that could continue the match found so far.
+		 *
+		 * @param positions the positions of each word in the document, in the
+		 *                  order of {@link #getWords()}
+		 * @return the number of matches
+		 */
+		public int count(PostingList[] positions) {
+			if (distance < 0) {
+				return countPhrase(positions);
+			}
+			return words.get(0).equals(words.get(1)) ? countRepeated(positions[0]) : countNear(positions[0], positions[1]);
+		}
+
+		/**
+		 * Counts the places a phrase starts.
+		 *
+		 * @param positions the positions of each word of the phrase
+		 * @return the number of matches
+		 */
+		private static int countPhrase(PostingList[] positions) {
+			PostingList.PositionIterator[] iterators = new PostingList.PositionIterator[positions.length];
+			int[] current = new int[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				iterators[i] = positions[i].iterator();
+				current[i] = Integer.MIN_VALUE;
+			}
+
+			int count = 0;
+			int start = iterators[0].advance(0);
+			while (start >= 0) {
+				int i = 1;
+				while (i < positions.length) {
+					int target = start + i;
+					if (current[i] < target) {
+						current[i] = iterators[i].advance(target);
+						if (current[i] < 0) {
+							return count;
+						}
+					}
+
+					if (current[i] > target) {
+						start = iterators[0].advance(current[i] - i);
+						if (start < 0) {
+							return count;
+						}
+						i = 1;
+					} else {
+						i++;
+					}
+				}
+
+				count++;
+				start = iterators[0].hasNext() ? iterators[0].nextInt() : -1;
+			}
+			return count;
+		}
+
+		/**
+		 * Counts the positions of the first word that have the second word within
+		 * the distance.
+		 *
+		 * @param first  the positions of the first word
+		 * @param second the positions of the second word
+		 * @return the number of matches
+		 */
+		private int countNear(PostingList first, PostingList second) {
+			PostingList.PositionIterator near = second.iterator();
+			int current = Integer.MIN_VALUE;
+			int count = 0;
+			for (PostingList.PositionIterator iterator = first.iterator(); iterator.hasNext();) {
+				int position = iterator.nextInt();
+				if (current < position - distance) {
+					current = near.advance(position - distance);
+					if (current < 0) {
+						break;
+					}
+				}
+				if (current <= position + distance) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Counts the positions of a word that have another occurrence of the same
+		 * word within the distance, for a proximity pair whose sides stem to the
+		 * same word. A position never counts as near itself.
+		 *
+		 * @param positions the positions of the word
+		 * @return the number of matches
+		 */
+		private int countRepeated(PostingList positions) {
+			PostingList.PositionIterator iterator = positions.iterator();
+			if (!iterator.hasNext()) {
+				return 0;
+			}
+
+			long previous = Long.MIN_VALUE / 2;
+			int position = iterator.nextInt();
+			int count = 0;
+			while (true) {
+				int next = iterator.hasNext() ? iterator.nextInt() : -1;
+				if (position - previous <= distance || (next >= 0 && next - position <= distance)) {
+					count++;
+				}
+				if (next < 0) {
+					return count;
+				}
+				previous = position;
+				position = next;
+			}
+		}
+
+		/**
+		 * Returns the phrase as it is written in a query.
+		 */
+		@Override
+		public String toString() {
+			if (distance < 0) {
+				return "\"" + String.join(" ", words) + "\"";
+			}
+			return words.get(0) + " NEAR/" + distance + " " + words.get(1);
+		}
+	}
+
+	/**
+	 * A condition on the words and phrases of a document, as a tree of AND, OR
+	 * and NOT over single words and phrases.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class Condition {
+
+		/**
+		 * The kinds of condition
+		 */
+		public enum Operator {
+			/** The document has a word */
+			WORD,
+			/** The document has a phrase or proximity pair */
+			PHRASE,
+			/** The document meets every child condition */
+			AND,
+			/** The document meets at least one child condition */
+			OR,
+			/** The document does not meet the child condition */
+			NOT
+		}
+
+		/**
+		 * The kind of condition
+		 */
+		private final Operator operator;
+
+		/**
+		 * The stemmed word of a {@link Operator#WORD} condition
+		 */
+		private final String word;
+
+		/**
+		 * The phrase of a {@link Operator#PHRASE} condition
+		 */
+		private final Phrase phrase;
+
+		/**
+		 * The child conditions of an AND, OR or NOT
+		 */
+		private final List<Condition> children;
+
+		/**
+		 * Constructor
+		 *
+		 * @param operator the kind of condition
+		 * @param word     the stemmed word, or null
+		 * @param phrase   the phrase, or null
+		 * @param children the child conditions
+		 */
+		private Condition(Operator operator, String word, Phrase phrase, List<Condition> children) {
+			this.operator = operator;
+			this.word = word;
+			this.phrase = phrase;
+			this.children = List.copyOf(children);
+		}
+
+		/**
+		 * Combines conditions with AND or OR.
+		 *
+		 * @param operator   AND or OR
+		 * @param conditions the conditions
+		 * @return the combined condition, the only condition if there is one, or
+		 *         null if there are none
+		 */
+		private static Condition of(Operator operator, List<Condition> conditions) {
+			if (conditions.isEmpty()) {
+				return null;
+			}
+			return conditions.size() == 1 ? conditions.get(0) : new Condition(operator, null, null, conditions);
+		}
+
+		/**
+		 * Returns the kind of condition.
+		 *
+		 * @return the operator
+		 */
+		public Operator getOperator() {
+			return operator;
+		}
+
+		/**
+		 * Returns the word of a {@link Operator#WORD} condition.
+		 *
+		 * @return the stemmed word, or null for other conditions
+		 */
+		public String getWord() {
+			return word;
+		}
+
+		/**
+		 * Returns the phrase of a {@link Operator#PHRASE} condition.
+		 *
+		 * @return the phrase, or null for other conditions
+		 */
+		public Phrase getPhrase() {
+			return phrase;
+		}
+
+		/**
+		 * Returns the child conditions: two or more for AND and OR, one for NOT.
+		 *
+		 * @return the child conditions
+		 */
+		public List<Condition> getChildren() {
+			return children;
+		}
+
+		/**
+		 * Returns the condition as it is written in a query, with parentheses only
+		 * where they are needed.
+		 */
+		@Override
+		public String toString() {
+			switch (operator) {
+			case WORD:
+				return word;
+			case PHRASE:
+				return phrase.toString();
+			case NOT:
+				return "NOT " + children.get(0).toString(Operator.NOT);
+			default:
+				ArrayList<String> parts = new ArrayList<>(children.size());
+				for (Condition child : children) {
+					parts.add(child.toString(operator));
+				}
+				return String.join(" " + operator + " ", parts);
+			}
+		}
+
+		/**
+		 * Returns the condition as it is written inside another one.
+		 *
+		 * @param parent the operator of the condition it is inside
+		 * @return the condition, in parentheses if it binds looser than the parent
+		 */
+		private String toString(Operator parent) {
+			boolean looser = operator == Operator.OR || (operator == Operator.AND && parent == Operator.NOT);
+			return looser && parent != Operator.OR ? "(" + this + ")" : toString();
+		}
+	}
+
+	/**
+	 * Parses the tokens of a query line into a condition, adding the words and
+	 * phrases that are not negated to the query as it goes.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class Parser {
+
+		/**
+		 * The query being parsed
+		 */
+		private final SearchQuery query;
+
+		/**
+		 * The tokens of the line
+		 */
+		private final List<String> tokens;
+
+		/**
+		 * The stemmer to use
+		 */
+		private final Stemmer stemmer;
+
+		/**
+		 * The index of the next token
+		 */
+		private int next;
+
+		/**
+		 * Whether an AND or NOT was found, so that not every match is a result
+		 */
+		private boolean filtered;
+
+		/**
+		 * Constructor
+		 *
+		 * @param query   the query to add words and phrases to
+		 * @param tokens  the tokens of the line
+		 * @param stemmer the stemmer to use
+		 */
+		private Parser(SearchQuery query, List<String> tokens, Stemmer stemmer) {
+			this.query = query;
+			this.tokens = tokens;
+			this.stemmer = stemmer;
+			this.next = 0;
+			this.filtered = false;
+		}
+
+		/**
+		 * Parses every token, skipping unmatched closing parentheses.
+		 *
+		 * @return the condition, or null if there is nothing to look for
+		 */
+		private Condition parse() {
+			ArrayList<Condition> any = new ArrayList<>();
+			while (next < tokens.size()) {
+				add(any, parseOr(true));
+				next++;
+			}
+			return Condition.of(Condition.Operator.OR, any);
+		}
+
+		/**
+		 * Parses conditions joined by OR or written next to each other, up to a
+		 * closing parenthesis or the end.
+		 *
+		 * @param positive whether the conditions are not negated
+		 * @return the condition, or null if there is nothing to look for
+		 */
+		private Condition parseOr(boolean positive) {
+			ArrayList<Condition> any = new ArrayList<>();
+			while (next < tokens.size() && !tokens.get(next).equals(")")) {
+				if (tokens.get(next).equals("OR")) {
+					next++;
+				} else {
+					add(any, parseAnd(positive));
+				}
+			}
+			return Condition.of(Condition.Operator.OR, any);
+		}
+
+		/**
+		 * Parses conditions joined by AND, or by a NOT that follows a condition.
+		 *
+		 * @param positive whether the conditions are not negated
+		 * @return the condition, or null if there is nothing to look for
+		 */
+		private Condition parseAnd(boolean positive) {
+			ArrayList<Condition> all = new ArrayList<>();
+			add(all, parseNot(positive));
+			while (next < tokens.size() && (tokens.get(next).equals("AND") || tokens.get(next).equals("NOT"))) {
+				if (tokens.get(next).equals("AND")) {
+					next++;
+				}
+				add(all, parseNot(positive));
+			}
+			filtered |= all.size() > 1;
+			return Condition.of(Condition.Operator.AND, all);
+		}
+
+		/**
+		 * Parses a negated condition, a group in parentheses or a word or phrase.
+		 * An AND with nothing before it is skipped.
+		 *
+		 * @param positive whether the condition is not negated
+		 * @return the condition, or null if there is nothing to look for
+		 */
+		private Condition parseNot(boolean positive) {
+			if (next == tokens.size()) {
+				return null;
+			}
+
+			switch (tokens.get(next)) {
+			case ")":
+			case "OR":
+				return null;
+			case "AND":
+				next++;
+				return null;
+			case "NOT":
+				next++;
+				Condition negated = parseNot(!positive);
+				if (negated == null) {
+					return null;
+				}
+				filtered = true;
+				return new Condition(Condition.Operator.NOT, null, null, List.of(negated));
+			case "(":
+				next++;
+				Condition group = parseOr(positive);
+				next++;
+				return group;
+			default:
+				return parseLeaf(positive);
+			}
+		}
+
+		/**
+		 * Parses a phrase, a proximity pair or a word. A proximity pair whose
+		 * sides are not one word each is searched as plain words.
+		 *
+		 * @param positive whether the condition is not negated
+		 * @return the condition, or null if the token has no words
+		 */
+		private Condition parseLeaf(boolean positive) {
+			String token = tokens.get(next++);
+			if (token.startsWith("\"")) {
+				return phrase(stem(TextParser.parse(token.substring(1, token.length() - 1)), stemmer), -1, positive);
+			}
+
+			Matcher near = next + 1 < tokens.size() ? NEAR_REGEX.matcher(tokens.get(next)) : null;
+			if (near != null && near.matches() && isWord(tokens.get(next + 1))) {
+				String[] first = TextParser.parse(token);
+				String[] second = TextParser.parse(tokens.get(next + 1));
+				next += 2;
+
+				int distance;
+				try {
+					distance = Integer.parseInt(near.group(1));
+				} catch (NumberFormatException e) {
+					distance = -1;
+				}
+
+				if (first.length == 1 && second.length == 1 && distance >= 0) {
+					return phrase(stem(new String[] { first[0], second[0] }, stemmer), distance, positive);
+				}
+				ArrayList<String> both = new ArrayList<>(List.of(first));
+				both.addAll(List.of(second));
+				return words(stem(both.toArray(new String[0]), stemmer), positive);
+			}
+
+			return words(stem(TextParser.parse(token), stemmer), positive);
+		}
+
+		/**
+		 * Checks if a token is a plain word rather than a phrase, parenthesis or
+		 * operator.
+		 *
+		 * @param token the token
+		 * @return true if it is a word
+		 */
+		private static boolean isWord(String token) {
+			switch (token) {
+			case "(":
+			case ")":
+			case "AND":
+			case "OR":
+			case "NOT":
+				return false;
+			default:
+				return !token.startsWith("\"");
+			}
+		}
+
+		/**
+		 * Makes a condition that any of some words is met.
+		 *
+		 * @param stems    the stemmed words
+		 * @param positive whether to add the words to the query
+		 * @return the condition, or null if there are no words
+		 */
+		private Condition words(List<String> stems, boolean positive) {
+			ArrayList<Condition> any = new ArrayList<>(stems.size());
+			for (String stem : stems) {
+				any.add(new Condition(Condition.Operator.WORD, stem, null, List.of()));
+				if (positive) {
+					query.words.add(stem);
+				}
+			}
+			return Condition.of(Condition.Operator.OR, any);
+		}
+
+		/**
+		 * Makes a condition that a phrase or proximity pair is met. A phrase of
+		 * one word is a word.
+		 *
+		 * @param stems    the stemmed words in order
+		 * @param distance the most positions apart the two words of a proximity
+		 *                 pair may be, or -1 for a phrase
+		 * @param positive whether to add the phrase to the query
+		 * @return the condition, or null if there are no words
+		 */
+		private Condition phrase(List<String> stems, int distance, boolean positive) {
+			if (stems.size() < 2) {
+				return words(stems, positive);
+			}
+
+			Phrase phrase = new Phrase(stems, distance);
+			if (positive) {
+				query.phrases.put(phrase.toString(), phrase);
+			}
+			return new Condition(Condition.Operator.PHRASE, null, phrase, List.of());
+		}
+
+		/**
+		 * Adds a condition to a list if there is one.
+		 *
+		 * @param conditions the list
+		 * @param condition  the condition, or null
+		 */
+		private static void add(List<Condition> conditions, Condition condition) {
+			if (condition != null) {
+				conditions.add(condition);
+			}
+		}
+	}
+}
@@ -2,7 +2,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -35,6 +34,9 @@ public class SearchServlet extends HttpServlet {
 	/** The title to use for this webpage. */
 	private static final String TITLE = "Kauai Search";
 
+	/** The most results shown for a search. */
+	private static final int RESULTS = 100;
+
 	/** Everything that will be output after a search is carried out. */
 	private ConcurrentLinkedQueue<String> outputQueue;
 
@@ -53,6 +55,11 @@ public class SearchServlet extends HttpServlet {
 	 */
 	private long seconds;
 
+	/**
+	 * The version of the index the last search saw
+	 */
+	private long version;
+
 	/**
 	 * initializes the LinkedQueue for the output messages.
 	 *
@@ -162,7 +169,7 @@ public class SearchServlet extends HttpServlet {
 		if (!outputQueue.isEmpty()) {
 			for (String message : outputQueue) {
 				out.printf("				<div class=\"box\">%n");
-				out.printf(message);
+				out.print(message);
 				out.printf("				</div>%n");
 				out.printf("%n");
 			}
@@ -179,6 +186,9 @@ public class SearchServlet extends HttpServlet {
 		out.printf("	    <p>%n");
 		out.printf(seconds + " ms.</p1>%n");
 		out.printf("	    </p>%n");
+		out.printf("	    <p>%n");
+		out.printf("<p1>Index version: " + version + "</p1>%n");
+		out.printf("	    </p>%n");
 		out.printf("%n");
 		out.printf("	    <p>%n");
 		out.printf("	    <p>%n");
@@ -225,17 +235,11 @@ public class SearchServlet extends HttpServlet {
 
 		String formatString = null;
 
-		SnowballStemmer stemmer = new SnowballStemmer(DEFAULT);
-		ArrayList<String> queryList = new ArrayList<String>();
-		for (String part : TextParser.parse(message)) {
-//		for (String part : message.split(" ")) { // TODO Modified by Sophie
-			if (part == " ") {
-				part = "";
-			}
-			queryList.add((stemmer.stem(part.toLowerCase())).toString());
-		}
+		SearchQuery query = SearchQuery.parse(request.getParameter("search") == null ? "" : request.getParameter("search"));
 
-		List<InvertedIndex.Result> results = this.webCrawler.search(queryList, exact);
+		ThreadSafeInvertedIndex.Snapshot snapshot = this.webCrawler.getSnapshot();
+		List<InvertedIndex.Result> results = snapshot.search(query, exact, RESULTS);
+		version = snapshot.getVersion();
 
 		if (results == null || results.isEmpty()) {
 			searches = 0;
@@ -243,16 +247,17 @@ public class SearchServlet extends HttpServlet {
 			formatString = String.format(
 					"					<i class=\"fas fa-quote-left has-text-grey-light\"></i> %s <i class=\"fas fa-quote-right has-text-grey-light\"></i>%n"
 							+ "					<p class=\"has-text-grey is-size-7 has-text-right\"></p>%n",
-					"The String: " + request.getParameter("search") + " Does not exist", getDate());
+					"The String: " + message + " Does not exist", getDate());
 			outputQueue.add(formatString);
 		} else {
 			searches = 0;
 			outputQueue.clear();
 			for (ThreadSafeInvertedIndex.Result result : results) {
+				String location = StringEscapeUtils.escapeHtml4(result.getFileName());
 				formatString = String.format(
 						"<a href=\"%s\">%s</a>"
 								+ "					<p class=\"has-text-grey is-size-7 has-text-right\">%s</p>%n",
-						result.getFileName(), result.getFileName(), getDate());
+						location, location, getDate());
 				searches++;
 				outputQueue.add(formatString);
 			}
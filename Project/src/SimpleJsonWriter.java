@@ -9,8 +9,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Outputs several simple data structures in "pretty" JSON format where newlines
@@ -174,23 +172,23 @@ public class SimpleJsonWriter {
 	 * @see #asNestedObject(Map, Writer, int)
 	 * 
 	 */
-	private static void asDoubleNested(Map<String, TreeMap<String, TreeSet<Integer>>> index, Writer writer,
+	private static void asDoubleNested(Map<String, ? extends Map<String, ? extends Collection<Integer>>> index, Writer writer,
 			Integer level) throws IOException {
-		var iterator = index.keySet().iterator();
+		var iterator = index.entrySet().iterator();
 		writer.write("{");
 
 		if (iterator.hasNext()) {
-			String key = iterator.next();
+			var entry = iterator.next();
 			writer.write("\n\t");
-			writer.write('"' + key + '"' + ": ");
-			asNestedObject(index.get(key), writer, level + 1);
+			writer.write('"' + entry.getKey() + '"' + ": ");
+			asNestedObject(entry.getValue(), writer, level + 1);
 		}
 
 		while (iterator.hasNext()) {
-			String key = iterator.next();
+			var entry = iterator.next();
 			writer.write(",\n\t");
-			writer.write('"' + key + '"' + ": ");
-			asNestedObject(index.get(key), writer, level + 1);
+			writer.write('"' + entry.getKey() + '"' + ": ");
+			asNestedObject(entry.getValue(), writer, level + 1);
 		}
 
 		writer.write("\n");
@@ -214,7 +212,7 @@ public class SimpleJsonWriter {
 		if (iterator.hasNext()) {
 			String query = iterator.next();
 			indent(writer, level + 1);
-			writer.write("\"" + query.toString() + "\": [");
+			writer.write("\"" + escape(query) + "\": [");
 			indent(writer, level + 1);
 			asQueryHelper(querySet, query, path, writer, level + 1);
 			writer.write("\n\t]");
@@ -225,7 +223,7 @@ public class SimpleJsonWriter {
 			String query = iterator.next();
 			writer.write(",\n");
 			indent(writer, level + 1);
-			writer.write("\"" + query.toString() + "\": [");
+			writer.write("\"" + escape(query) + "\": [");
 			indent(writer, level + 1);
 			asQueryHelper(querySet, query, path, writer, level + 1);
 			writer.write("\n\t]");
@@ -300,7 +298,7 @@ public class SimpleJsonWriter {
 	 * @param path     the path that is getting written
 	 * @throws IOException
 	 */
-	public static void asDoubleNested(Map<String, TreeMap<String, TreeSet<Integer>>> elements, Path path)
+	public static void asDoubleNested(Map<String, ? extends Map<String, ? extends Collection<Integer>>> elements, Path path)
 			throws IOException {
 		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
 			asDoubleNested(elements, writer, 0);
@@ -387,6 +385,43 @@ public class SimpleJsonWriter {
 		writer.write(element);
 	}
 
+	/**
+	 * Escapes quotation marks, backslashes and control characters, so the text can
+	 * be written between quotation marks as a JSON string.
+	 *
+	 * @param text the text to escape
+	 * @return the escaped text
+	 */
+	public static String escape(String text) {
+		StringBuilder escaped = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			String replacement;
+			if (c == '"' || c == '\\') {
+				replacement = "\\" + c;
+			} else if (c == '\n') {
+				replacement = "\\n";
+			} else if (c == '\r') {
+				replacement = "\\r";
+			} else if (c == '\t') {
+				replacement = "\\t";
+			} else if (c < 0x20) {
+				replacement = String.format("\\u%04x", (int) c);
+			} else {
+				if (escaped != null) {
+					escaped.append(c);
+				}
+				continue;
+			}
+
+			if (escaped == null) {
+				escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+			}
+			escaped.append(replacement);
+		}
+		return escaped == null ? text : escaped.toString();
+	}
+
 	/**
 	 * Writes the element surrounded by {@code " "} quotation marks.
 	 *
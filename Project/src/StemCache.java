@@ -0,0 +1,251 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import opennlp.tools.stemmer.Stemmer;
+import opennlp.tools.stemmer.snowball.SnowballStemmer;
+
+/**
+ * A stemmer that remembers the stems of the words it has seen, shared by every
+ * thread that stems text. Most words in a text are a small set of common
+ * words, so most calls find their stem here instead of running the Snowball
+ * algorithm again.
+ *
+ * The cache is split into segments by the hash of the word, each holding the
+ * words it saw most recently and guarded by its own lock, so threads only wait
+ * on each other when they stem words from the same segment. Stems are worked
+ * out outside the lock with a stemmer owned by the thread, since
+ * {@link SnowballStemmer} is not thread safe.
+ *
+ * @author Jaden
+ *
+ */
+public class StemCache implements Stemmer {
+
+	/**
+	 * The number of words the shared cache holds
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * The cache shared by everything that stems text in English
+	 */
+	public static final StemCache SHARED = new StemCache(TextFileStemmer.DEFAULT, DEFAULT_CAPACITY);
+
+	/**
+	 * The number of segments, a power of two
+	 */
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * The segments, each a map from word to stem in least recently used order
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * The stemmer of each thread, used when a word is not in the cache
+	 */
+	private final ThreadLocal<Stemmer> stemmers;
+
+	/**
+	 * The number of words the cache can hold
+	 */
+	private final int capacity;
+
+	/**
+	 * The number of words found in the cache
+	 */
+	private final LongAdder hits;
+
+	/**
+	 * The number of words stemmed because they were not in the cache
+	 */
+	private final LongAdder misses;
+
+	/**
+	 * The number of words dropped to make room for others
+	 */
+	private final LongAdder evictions;
+
+	/**
+	 * Constructor
+	 *
+	 * @param algorithm the stemmer algorithm
+	 * @param capacity  the number of words to hold, at least 1
+	 * @throws IllegalArgumentException if the capacity is below 1
+	 */
+	public StemCache(SnowballStemmer.ALGORITHM algorithm, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		this.capacity = capacity;
+		this.stemmers = ThreadLocal.withInitial(() -> new SnowballStemmer(algorithm));
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			// spread the capacity so the segments add up to it exactly
+			int share = capacity / SEGMENTS + (i < capacity % SEGMENTS ? 1 : 0);
+			segments[i] = new Segment(Math.max(share, 1));
+		}
+	}
+
+	/**
+	 * Returns the stem of a word, from the cache if it is there.
+	 *
+	 * @param word the word to stem
+	 * @return the stem
+	 */
+	@Override
+	public String stem(CharSequence word) {
+		String key = word.toString();
+		Segment segment = segments[spread(key.hashCode()) & (SEGMENTS - 1)];
+		String stem;
+		synchronized (segment) {
+			stem = segment.get(key);
+		}
+		if (stem != null) {
+			hits.increment();
+			return stem;
+		}
+		misses.increment();
+		stem = stemmers.get().stem(key).toString();
+		synchronized (segment) {
+			segment.put(key, stem);
+		}
+		return stem;
+	}
+
+	/**
+	 * Mixes the high bits of a hash into the low bits that pick the segment.
+	 *
+	 * @param hash the hash
+	 * @return the mixed hash
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Returns the number of words the cache can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of words in the cache.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of words found in the cache.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of words that were stemmed because they were not in the
+	 * cache.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of words dropped from the cache to make room.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the share of words found in the cache.
+	 *
+	 * @return the hit rate from 0 to 1, or 0 if nothing was stemmed yet
+	 */
+	public double getHitRate() {
+		long found = hits.sum();
+		long total = found + misses.sum();
+		return total == 0 ? 0 : (double) found / total;
+	}
+
+	/**
+	 * Empties the cache and resets its counters.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d/%d stems, %d hits, %d misses, %d evictions", size(), capacity, getHits(),
+				getMisses(), getEvictions());
+	}
+
+	/**
+	 * One segment of the cache, which drops its least recently used word once it
+	 * holds more than its share.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class Segment extends LinkedHashMap<String, String> {
+
+		/**
+		 * Default serial version
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The number of words this segment can hold
+		 */
+		private final int limit;
+
+		/**
+		 * Constructor
+		 *
+		 * @param limit the number of words this segment can hold
+		 */
+		private Segment(int limit) {
+			super(Math.min(limit, 1 << 10) * 4 / 3 + 1, 0.75f, true);
+			this.limit = limit;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			if (size() > limit) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
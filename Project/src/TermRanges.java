@@ -0,0 +1,120 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.IntFunction;
+
+/**
+ * Maps short prefixes to the range of term IDs whose words start with them, for
+ * a dictionary whose words are numbered 0, 1, 2, ... in sorted order. Since the
+ * words are sorted, the words with a prefix always have consecutive IDs.
+ *
+ * Every prefix of up to {@link #DEPTH} characters that some word has is stored,
+ * so resolving one is a single hash lookup no matter how many words there are.
+ * These are the prefixes that match the most words. A longer prefix starts from
+ * the range of its first {@link #DEPTH} characters and narrows it down with a
+ * binary search over just that range.
+ *
+ * @author Jaden
+ *
+ */
+public class TermRanges {
+
+	/**
+	 * The longest prefix stored
+	 */
+	public static final int DEPTH = 3;
+
+	/**
+	 * The first and one past the last term ID of each stored prefix
+	 */
+	private final HashMap<String, int[]> ranges;
+
+	/**
+	 * The number of words
+	 */
+	private final int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param words the words of the dictionary in sorted order, the first one
+	 *              having term ID 0
+	 */
+	public TermRanges(Iterator<String> words) {
+		this.ranges = new HashMap<>();
+
+		String previous = "";
+		int[][] open = new int[DEPTH + 1][];
+		int id = 0;
+		while (words.hasNext()) {
+			String word = words.next();
+			int shared = 0;
+			int limit = Math.min(DEPTH, Math.min(word.length(), previous.length()));
+			while (shared < limit && word.charAt(shared) == previous.charAt(shared)) {
+				shared++;
+			}
+
+			for (int length = shared + 1; length <= DEPTH; length++) {
+				open[length] = null;
+			}
+			for (int length = shared + 1; length <= Math.min(DEPTH, word.length()); length++) {
+				open[length] = new int[] { id, id };
+				ranges.put(word.substring(0, length), open[length]);
+			}
+			for (int length = 1; length <= Math.min(DEPTH, word.length()); length++) {
+				open[length][1] = id + 1;
+			}
+
+			previous = word;
+			id++;
+		}
+		this.size = id;
+	}
+
+	/**
+	 * Returns the range of term IDs whose words start with a prefix.
+	 *
+	 * @param prefix the prefix
+	 * @param words  returns the word with a term ID, used to narrow down the
+	 *               range of a prefix longer than {@link #DEPTH}
+	 * @return the first and one past the last term ID, which are equal if no word
+	 *         has the prefix
+	 */
+	public int[] range(String prefix, IntFunction<String> words) {
+		if (prefix.isEmpty()) {
+			return new int[] { 0, size };
+		}
+
+		int[] range = ranges.get(prefix.length() <= DEPTH ? prefix : prefix.substring(0, DEPTH));
+		if (range == null) {
+			return new int[] { 0, 0 };
+		}
+		if (prefix.length() <= DEPTH) {
+			return range.clone();
+		}
+
+		int start = range[0];
+		int end = range[1];
+		int low = start;
+		int high = end;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (words.apply(middle).compareTo(prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		start = low;
+
+		high = end;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (words.apply(middle).startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return new int[] { start, low };
+	}
+}
@@ -29,13 +29,12 @@ public class TextFileStemmer {
 	 * @param line the line of words to clean, split, and stem
 	 * @return a sorted set of unique cleaned and stemmed words
 	 *
-	 * @see SnowballStemmer
+	 * @see StemCache#SHARED
 	 * @see #DEFAULT
 	 * @see #uniqueStems(String, Stemmer)
 	 */
 	public static TreeSet<String> uniqueStems(String line) {
-		// THIS IS PROVIDED FOR YOU; NO NEED TO MODIFY
-		return uniqueStems(line, new SnowballStemmer(DEFAULT));
+		return uniqueStems(line, StemCache.SHARED);
 	}
 
 	/**
@@ -47,12 +46,14 @@ public class TextFileStemmer {
 	 * @return a sorted set of unique cleaned and stemmed words
 	 *
 	 * @see Stemmer#stem(CharSequence)
-	 * @see TextParser#parse(String)
+	 * @see TextParser.Tokenizer
 	 */
 	public static TreeSet<String> uniqueStems(String line, Stemmer stemmer) {
 		TreeSet<String> stemmed = new TreeSet<String>();
-		String[] words = TextParser.parse(line);
-		for (String word : words) {
+		TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
+		tokenizer.reset(line);
+		String word;
+		while ((word = tokenizer.next()) != null) {
 			String data = stemmer.stem(word).toString();
 			stemmed.add(data);
 		}
@@ -68,17 +69,19 @@ public class TextFileStemmer {
 	 * @throws IOException if unable to read or parse file
 	 *
 	 * @see #uniqueStems(String)
-	 * @see TextParser#parse(String)
+	 * @see TextParser.Tokenizer
 	 */
 	public static TreeSet<String> uniqueStems(Path inputFile) throws IOException {
-		Stemmer stemmer = new SnowballStemmer(DEFAULT);
+		Stemmer stemmer = StemCache.SHARED;
 		TreeSet<String> stemmedWords = new TreeSet<>();
 		try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8);) {
+			TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
 			String line = reader.readLine();
 			while (line != null) {
-				String[] parsed = TextParser.parse(line);
-				for (String words : parsed) {
-					String data = stemmer.stem(words).toString();
+				tokenizer.reset(line);
+				String word;
+				while ((word = tokenizer.next()) != null) {
+					String data = stemmer.stem(word).toString();
 					stemmedWords.add(data);
 				}
 				line = reader.readLine();
@@ -1,4 +1,8 @@
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 /**
@@ -41,15 +45,271 @@ public class TextParser {
 	}
 
 	/**
-	 * Cleans the text and then splits it by whitespace.
+	 * Cleans the text and then splits it by whitespace, giving the same words as
+	 * {@link #split(String)} of {@link #clean(String)}.
 	 *
 	 * @param text the text to clean and split
 	 * @return an array of {@link String} objects
 	 *
 	 * @see #clean(String)
-	 * @see #parse(String)
+	 * @see #split(String)
+	 * @see Tokenizer
 	 */
 	public static String[] parse(String text) {
-		return split(clean(text));
+		Tokenizer tokenizer = new Tokenizer();
+		tokenizer.reset(text);
+		List<String> words = new ArrayList<>();
+		String word;
+		while ((word = tokenizer.next()) != null) {
+			words.add(word);
+		}
+		return words.toArray(new String[0]);
+	}
+
+	/**
+	 * Checks if a code point is whitespace the way {@link #SPLIT_REGEX} sees it.
+	 *
+	 * @param codePoint the code point
+	 * @return true if it is whitespace
+	 */
+	private static boolean isSpace(int codePoint) {
+		if (codePoint >= 0x09 && codePoint <= 0x0D || codePoint == 0x85) {
+			return true;
+		}
+		int type = Character.getType(codePoint);
+		return type == Character.SPACE_SEPARATOR || type == Character.LINE_SEPARATOR
+				|| type == Character.PARAGRAPH_SEPARATOR;
+	}
+
+	/**
+	 * Splits text into cleaned words in one pass, one word at a time, without the
+	 * copies of the whole line that {@link #parse(String)} used to make. A
+	 * tokenizer keeps its buffer between lines, so the only thing made for each
+	 * word is the word itself.
+	 *
+	 * Lines of ASCII are cleaned and lowercased as they are read. The rest of a
+	 * line from its first other character is decomposed first so accents can be
+	 * dropped, and words with other characters are lowercased the way
+	 * {@link String#toLowerCase()} does it for the default locale.
+	 *
+	 * A tokenizer is not thread safe.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	public static class Tokenizer {
+
+		/**
+		 * The text being read
+		 */
+		private CharSequence text;
+
+		/**
+		 * The index of the next character to read
+		 */
+		private int index;
+
+		/**
+		 * The index after the last character to read
+		 */
+		private int limit;
+
+		/**
+		 * Whether the rest of the text has been decomposed
+		 */
+		private boolean decomposed;
+
+		/**
+		 * Whether no letter has been read yet
+		 */
+		private boolean leading;
+
+		/**
+		 * Whether an empty word comes before the first one, which split gives when
+		 * the cleaned text starts with whitespace that strip keeps, like a no-break
+		 * space
+		 */
+		private boolean empty;
+
+		/**
+		 * The text as it was given
+		 */
+		private CharSequence source;
+
+		/**
+		 * The index of the first character of the source to read
+		 */
+		private int start;
+
+		/**
+		 * The index after the last character of the source to read
+		 */
+		private int end;
+
+		/**
+		 * The number of words returned from the text
+		 */
+		private int count;
+
+		/**
+		 * The words of the text the slow way, only made for words with a capital
+		 * sigma
+		 */
+		private String[] words;
+
+		/**
+		 * Whether 'I' lowercases to something other than 'i' in the locale
+		 */
+		private boolean dotless;
+
+		/**
+		 * The characters of the word being read
+		 */
+		private char[] buffer;
+
+		/**
+		 * Constructor
+		 */
+		public Tokenizer() {
+			this.buffer = new char[32];
+			this.text = null;
+		}
+
+		/**
+		 * Starts reading a new text.
+		 *
+		 * @param text the text to split into words
+		 */
+		public void reset(CharSequence text) {
+			reset(text, 0, text.length());
+		}
+
+		/**
+		 * Starts reading part of a text, such as one line of a larger buffer, as if
+		 * it were the whole text.
+		 *
+		 * @param text  the text
+		 * @param start the index of the first character to read
+		 * @param end   the index after the last character to read
+		 */
+		public void reset(CharSequence text, int start, int end) {
+			this.text = text;
+			this.source = text;
+			this.start = start;
+			this.end = end;
+			this.words = null;
+			this.count = 0;
+			this.index = start;
+			this.limit = end;
+			this.decomposed = false;
+			this.leading = true;
+			this.empty = false;
+			String language = Locale.getDefault().getLanguage();
+			this.dotless = language.equals("tr") || language.equals("az");
+		}
+
+		/**
+		 * Returns the next cleaned word of the text.
+		 *
+		 * @return the word, or null if there are no more
+		 */
+		public String next() {
+			if (text == null) {
+				return null;
+			}
+			int length = 0;
+			boolean lower = true;
+			boolean ascii = true;
+			while (index < limit) {
+				char c = text.charAt(index);
+				if (c < 0x80) {
+					boolean upper = c >= 'A' && c <= 'Z';
+					if (upper || c >= 'a' && c <= 'z') {
+						if (empty) {
+							empty = false;
+							count++;
+							return "";
+						}
+						leading = false;
+						lower &= !upper;
+						ascii &= !(upper && c == 'I' && dotless);
+						length = append(length, c);
+					} else if ((c >= 0x09 && c <= 0x0D || c == ' ') && length > 0) {
+						index++;
+						break;
+					}
+					index++;
+					continue;
+				}
+				if (!decomposed) {
+					// nothing before the first non-ASCII character changes when decomposed
+					text = Normalizer.normalize(text.subSequence(index, limit), Normalizer.Form.NFD);
+					index = 0;
+					limit = text.length();
+					decomposed = true;
+					continue;
+				}
+				int codePoint = Character.codePointAt(text, index);
+				if (Character.isAlphabetic(codePoint)) {
+					if (empty) {
+						empty = false;
+						count++;
+						return "";
+					}
+					leading = false;
+					ascii = false;
+					length = append(length, c);
+					if (Character.isSupplementaryCodePoint(codePoint)) {
+						length = append(length, text.charAt(index + 1));
+					}
+				} else if (isSpace(codePoint)) {
+					if (leading && !Character.isWhitespace(codePoint)) {
+						empty = true;
+					}
+					if (length > 0) {
+						index += Character.charCount(codePoint);
+						break;
+					}
+				}
+				index += Character.charCount(codePoint);
+			}
+			if (length == 0) {
+				text = null;
+				return null;
+			}
+			count++;
+			if (!ascii) {
+				String word = new String(buffer, 0, length);
+				if (word.indexOf('\u03A3') >= 0) {
+					// whether a capital sigma lowercases to a final sigma depends on the text around it
+					if (words == null) {
+						words = split(clean(source.subSequence(start, end).toString()));
+					}
+					return words[count - 1];
+				}
+				return word.toLowerCase();
+			}
+			if (!lower) {
+				for (int i = 0; i < length; i++) {
+					buffer[i] |= buffer[i] <= 'Z' ? 0x20 : 0;
+				}
+			}
+			return new String(buffer, 0, length);
+		}
+
+		/**
+		 * Adds a character to the word, growing the buffer if it is full.
+		 *
+		 * @param length the length of the word so far
+		 * @param c      the character
+		 * @return the new length
+		 */
+		private int append(int length, char c) {
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, length * 2);
+			}
+			buffer[length] = c;
+			return length + 1;
+		}
 	}
 }
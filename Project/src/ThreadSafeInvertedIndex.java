@@ -1,33 +1,194 @@
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.StreamSupport;
 
 /**
  * A threadSafe version of InvertedIndex
  *
+ * The words are split into shards by hash, and each shard is a list of
+ * immutable segments; every shard shares one document table. The segment
+ * lists of all shards are published together as one immutable
+ * {@link Snapshot}, so a search reads a single volatile field and then works on
+ * a consistent version of the index without ever locking or waiting.
+ *
+ * Writers build the next version off to the side. Every addAll copies the other
+ * index into one new segment per shard without holding any lock and then only
+ * takes the write locks of the shards it touches to publish a new snapshot, so
+ * writers never block each other while building and writers that touch
+ * different shards never block each other at all. A background worker merges
+ * segments of similar size once a shard has {@link #MERGE_FACTOR} of them, so
+ * the lists stay short. If merging falls behind and a shard piles up more than
+ * {@link #MAX_SEGMENTS} segments, the writer that published the last one runs
+ * the merges itself before returning, which slows ingest down instead of
+ * letting searches slow down.
+ *
+ * Within a shard, a document is always in exactly one segment; adding to a
+ * document that is already indexed merges the new words into the segment that
+ * holds it. Deleting a document publishes a new version, but since the
+ * tombstone lives in the shared document table, older snapshots stop returning
+ * the document as well.
+ *
+ * An index loaded from disk can be used as a pinned first segment. Pinned
+ * segments are never picked for background merges or compaction, so a large
+ * mapped index stays on disk unless a writer adds to one of its documents.
+ *
  * @author Jaden
  *
  */
 public class ThreadSafeInvertedIndex extends InvertedIndex {
-	/** The lock used to protect concurrent access to the underlying set. */
-	private final SimpleReadWriteLock lock;
+
+	/**
+	 * Number of segments of similar size that trigger a background merge
+	 */
+	public static final int MERGE_FACTOR = 10;
+
+	/**
+	 * Number of segments in a shard above which writers help merge before
+	 * returning
+	 */
+	public static final int MAX_SEGMENTS = 4 * MERGE_FACTOR;
+
+	/**
+	 * Number of shards used when none is given
+	 */
+	public static final int DEFAULT_SHARDS = 4;
+
+	/**
+	 * The shards, each holding the words that hash to it
+	 */
+	private final Shard[] shards;
+
+	/**
+	 * The current version of the index. Replaced, never modified.
+	 */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * The background merge worker
+	 */
+	private final MergeWorker merger;
 
 	/**
 	 * Constructor
 	 *
 	 */
 	public ThreadSafeInvertedIndex() {
-		super();
-		lock = new SimpleReadWriteLock();
+		this(DEFAULT_SHARDS);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param shardCount the number of shards to split the words into
+	 */
+	public ThreadSafeInvertedIndex(int shardCount) {
+		super(new DocumentTable());
+		shards = newShards(shardCount);
+		snapshot = new Snapshot(getDocuments(), 0, Collections.nCopies(shardCount, List.of()));
+		merger = new MergeWorker();
+		merger.start();
+
+	}
+
+	/**
+	 * Constructor for an index that starts with the contents of another index,
+	 * such as one mapped from disk. The base index is searched in place and is
+	 * never changed.
+	 *
+	 * @param base the starting index
+	 */
+	public ThreadSafeInvertedIndex(InvertedIndex base) {
+		this(base, DEFAULT_SHARDS);
+	}
 
+	/**
+	 * Constructor for an index that starts with the contents of another index,
+	 * such as one mapped from disk. The base index is searched in place and is
+	 * never changed.
+	 *
+	 * @param base       the starting index
+	 * @param shardCount the number of shards to split the words into
+	 */
+	public ThreadSafeInvertedIndex(InvertedIndex base, int shardCount) {
+		super(base.getDocuments());
+		shards = newShards(shardCount);
+
+		ArrayList<List<Segment>> segments = new ArrayList<>(shardCount);
+		BitSet documents = base.getDocumentIds();
+		for (int i = 0; i < shardCount; i++) {
+			if (documents.isEmpty()) {
+				segments.add(List.of());
+			} else {
+				InvertedIndex view = shardCount == 1 ? base : new ShardView(base, i, shardCount);
+				segments.add(List.of(new Segment(view, documents, true)));
+				shards[i].indexed.or(documents);
+			}
+		}
+		snapshot = new Snapshot(getDocuments(), 0, segments);
+		merger = new MergeWorker();
+		merger.start();
+	}
+
+	/**
+	 * Creates empty shards.
+	 *
+	 * @param shardCount the number of shards
+	 * @return the shards
+	 * @throws IllegalArgumentException if the shard count is not positive
+	 */
+	private Shard[] newShards(int shardCount) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("The shard count must be positive: " + shardCount);
+		}
+		Shard[] shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(i);
+		}
+		return shards;
+	}
+
+	/**
+	 * Returns the current version of the index. The snapshot never changes, so
+	 * any number of searches on it see exactly the same words.
+	 *
+	 * @return the current snapshot
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Stops the background thread that merges segments, so it no longer holds
+	 * on to the index. The index can still be changed and searched afterwards;
+	 * segments are then only merged when a shard has too many of them.
+	 */
+	public void shutdown() {
+		merger.interrupt();
+	}
+
+	@Override
+	public long getVersion() {
+		return snapshot.getVersion();
 	}
 
 	/**
 	 * Will add element to our Inverted Index.
 	 *
+	 * Each call publishes (or merges) a segment, so prefer building a local
+	 * {@link InvertedIndex} and calling {@link #addAll(InvertedIndex)} once.
+	 *
 	 * @param word to be added
 	 * @param file to be added
 	 * @param pos  to be added
@@ -36,56 +197,264 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 	 */
 	@Override
 	public void addElement(String word, String file, Integer pos) throws IOException {
-		lock.writeLock().lock();
-		try {
-			super.addElement(word, file, pos);
-		} finally {
-			lock.writeLock().unlock();
-		}
+		InvertedIndex local = new InvertedIndex();
+		local.addElement(word, file, pos);
+		addAll(local);
 
 	}
 
+	/**
+	 * Copies the other index into one new segment per shard and publishes them
+	 * together in one new version. The position lists of the other index are
+	 * reused, so it must not be changed afterwards.
+	 *
+	 * @param other the InvertedIndex to be added
+	 */
 	@Override
 	public void addAll(InvertedIndex other) {
-		lock.writeLock().lock();
+		Segment[] segments = split(other);
+		BitSet touched = new BitSet(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			if (segments[i] != null) {
+				touched.set(i);
+			}
+		}
+		if (touched.isEmpty()) {
+			return;
+		}
+
+		boolean full = false;
+		lock(touched);
 		try {
-			super.addAll(other);
+			ArrayList<List<Segment>> changes = noChanges();
+			for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+				changes.set(i, shards[i].added(segments[i]));
+				full |= changes.get(i).size() > MAX_SEGMENTS;
+			}
+			publish(changes);
 		} finally {
-			lock.writeLock().unlock();
+			unlock(touched);
 		}
+		afterAdding(full);
 	}
 
 	/**
-	 * Does exactSearch of a Collection of quieries
+	 * Replaces every document of another index with its contents there in one
+	 * new version. The locations get new IDs and their segments are built while
+	 * the old documents are still searchable. Then, under every shard lock, the
+	 * old IDs are dropped from the segments that hold them, as by
+	 * {@link #removeDocuments(Collection)}, and published together with the new
+	 * segments, so a search sees either all of the old documents or all of the
+	 * new ones. The old IDs are tombstoned right after the new version is
+	 * published, so they are not saved as live documents. Since searches check
+	 * tombstones in the shared document table, a search still running on the
+	 * old version may then miss the replaced documents.
 	 *
-	 * @param queries the queries being searched
-	 * @return an arraylist of results
+	 * @param contents the new contents of each of its documents
 	 */
 	@Override
-	public ArrayList<Result> exactSearch(Collection<String> queries) {
-		lock.readLock().lock();
+	public void replaceDocuments(InvertedIndex contents) {
+		DocumentTable table = contents.getDocuments();
+		ArrayList<String> locations = new ArrayList<>(table.size());
+		for (int id = 0; id < table.size(); id++) {
+			locations.add(table.getLocation(id));
+		}
+
+		boolean full = false;
+		BitSet all = all();
+		lock(all);
 		try {
-			return super.exactSearch(queries);
+			BitSet old = getDocuments().detach(locations);
+			Segment[] segments = split(contents);
+
+			ArrayList<List<Segment>> changes = noChanges();
+			for (Shard shard : shards) {
+				BitSet held = (BitSet) old.clone();
+				held.and(shard.indexed);
+				List<Segment> kept = shard.dropped(held);
+				shard.indexed.andNot(held);
+				if (segments[shard.id] != null) {
+					kept = shard.added(kept == null ? shard.current() : kept, segments[shard.id]);
+					full |= kept.size() > MAX_SEGMENTS;
+				}
+				changes.set(shard.id, kept);
+			}
+			publish(changes);
+			getDocuments().delete(old);
 		} finally {
-			lock.readLock().unlock();
+			unlock(all);
+		}
+		afterAdding(full);
+	}
+
+	/**
+	 * Copies another index onto the document table of this one and splits the
+	 * copy into one new segment per shard. The position lists of the other
+	 * index are reused, so it must not be changed afterwards.
+	 *
+	 * @param other the index to copy
+	 * @return the segment for each shard, or null for shards it has no words for
+	 */
+	private Segment[] split(InvertedIndex other) {
+		InvertedIndex copy = new InvertedIndex(getDocuments());
+		copy.addAll(other);
+
+		InvertedIndex[] parts = new InvertedIndex[shards.length];
+		if (shards.length == 1) {
+			parts[0] = copy;
+		} else {
+			for (int i = 0; i < shards.length; i++) {
+				parts[i] = new InvertedIndex(getDocuments());
+			}
+			for (String word : copy.getWords()) {
+				parts[shardOf(word)].putPostings(word, copy.getPostings(word));
+			}
+		}
+
+		Segment[] segments = new Segment[shards.length];
+		for (int i = 0; i < shards.length; i++) {
+			if (parts[i].size() > 0) {
+				segments[i] = new Segment(parts[i]);
+			}
 		}
+		return segments;
 	}
 
 	/**
-	 * Does partialSearch of a Collection of quieries
+	 * Merges the segments of shards that have too many, then lets the
+	 * background worker merge the rest.
 	 *
-	 * @param queries the queries being searched
-	 * @return an arraylist of results
+	 * @param full whether a shard may have more than {@link #MAX_SEGMENTS}
+	 *             segments
 	 */
+	private void afterAdding(boolean full) {
+		if (full) {
+			for (Shard shard : shards) {
+				if (shard.current().size() > MAX_SEGMENTS) {
+					shard.mergeSegments();
+				}
+			}
+		}
+		merger.wake();
+	}
+
+	/**
+	 * Removes documents by replacing each segment that holds one of them with a
+	 * copy that leaves them out. Segments without them are kept as they are.
+	 *
+	 * @param locations the locations of the documents to remove
+	 */
+	@Override
+	public void removeDocuments(Collection<String> locations) {
+		BitSet removed = toDocumentIds(locations);
+		if (removed.isEmpty()) {
+			return;
+		}
+
+		BitSet all = all();
+		lock(all);
+		try {
+			ArrayList<List<Segment>> changes = noChanges();
+			BitSet cleared = new BitSet();
+			for (Shard shard : shards) {
+				BitSet held = (BitSet) removed.clone();
+				held.and(shard.indexed);
+				changes.set(shard.id, shard.dropped(held));
+				shard.indexed.andNot(held);
+				cleared.or(held);
+			}
+			for (int id = cleared.nextSetBit(0); id >= 0; id = cleared.nextSetBit(id + 1)) {
+				getDocuments().clearCount(id);
+			}
+			publish(changes);
+		} finally {
+			unlock(all);
+		}
+	}
+
 	@Override
-	public ArrayList<Result> partialSearch(Collection<String> queries) {
-		lock.readLock().lock();
+	public boolean deleteDocument(String location) {
+		BitSet all = all();
+		lock(all);
 		try {
-			return super.partialSearch(queries);
+			int id = getDocuments().delete(location);
+			if (id < 0) {
+				return false;
+			}
+
+			for (Shard shard : shards) {
+				shard.indexed.clear(id);
+			}
+			publish(noChanges());
+			return true;
 		} finally {
-			lock.readLock().unlock();
+			unlock(all);
 		}
+	}
 
+	/**
+	 * Drops the postings of deleted documents by replacing each segment that
+	 * holds one of them. Background merges also drop them from the segments
+	 * they merge.
+	 */
+	@Override
+	public void reclaimDeleted() {
+		BitSet deleted = getDocuments().getDeleted();
+		BitSet all = all();
+		lock(all);
+		try {
+			ArrayList<List<Segment>> changes = noChanges();
+			for (Shard shard : shards) {
+				changes.set(shard.id, shard.dropped(deleted));
+			}
+			publish(changes);
+		} finally {
+			unlock(all);
+		}
+	}
+
+	/**
+	 * Returns the number of published segments.
+	 *
+	 * @return the number of segments across all shards
+	 */
+	public int getSegmentCount() {
+		return snapshot.getSegments().size();
+	}
+
+	/**
+	 * Returns the number of shards the words are split into.
+	 *
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	@Override
+	public ArrayList<Result> exactSearch(Collection<String> queries, int k) {
+		return snapshot.exactSearch(queries, k);
+	}
+
+	@Override
+	public ArrayList<Result> partialSearch(Collection<String> queries, int k) {
+		return snapshot.partialSearch(queries, k);
+
+	}
+
+	@Override
+	public ArrayList<Result> search(SearchQuery query, boolean exact, int k) {
+		return snapshot.search(query, exact, k);
+	}
+
+	/**
+	 * Changes how searches score documents, starting with the current snapshot.
+	 * Snapshots published later keep the scorer.
+	 */
+	@Override
+	public synchronized void setScorer(Scorer scorer) {
+		super.setScorer(scorer);
+		snapshot.setScorer(scorer);
 	}
 
 	/**
@@ -96,157 +465,1245 @@ public class ThreadSafeInvertedIndex extends InvertedIndex {
 	 */
 	@Override
 	public void printIndex(Path outFile) throws IOException {
-		lock.readLock().lock();
-		try {
-			super.printIndex(outFile);
-		} finally {
-			lock.readLock().unlock();
+		for (Shard shard : shards) {
+			shard.compact();
 		}
+		snapshot.printIndex(outFile);
+	}
+
+	@Override
+	public Map<String, Integer> getCount() {
+		return snapshot.getCount();
+
+	}
+
+	@Override
+	public boolean contains(String word) {
+		return snapshot.contains(word);
+	}
+
+	@Override
+	public boolean contains(String word, String path) {
+		return snapshot.contains(word, path);
+	}
+
+	@Override
+	public boolean contains(String word, String path, int postion) {
+		return snapshot.contains(word, path, postion);
+	}
+
+	@Override
+	public Set<String> getWords() {
+		return snapshot.getWords();
+
+	}
+
+	@Override
+	public Set<String> getLocations(String word) {
+		return snapshot.getLocations(word);
+
+	}
+
+	@Override
+	public Set<Integer> getPositions(String word, String location) {
+		return snapshot.getPositions(word, location);
+
+	}
+
+	@Override
+	public int size() {
+		return snapshot.size();
+
+	}
+
+	@Override
+	public int size(String word) {
+		return snapshot.size(word);
+
+	}
+
+	@Override
+	protected Postings getPostings(String word) {
+		return snapshot.getPostings(word);
+	}
+
+	@Override
+	protected PostingsIterator getPostingsIterator(String word) {
+		return snapshot.getPostingsIterator(word);
+	}
+
+	@Override
+	protected Iterable<String> getWords(String prefix) {
+		return snapshot.getWords(prefix);
 	}
 
 	/**
-	 * getter for count
+	 * Replaces the current snapshot with a new version. Callers must hold the
+	 * write lock of every shard they change.
 	 *
-	 * @return count as a unmodifiableMap
+	 * @param changes the new segment list of each shard, or null for shards that
+	 *                did not change
 	 */
-	@Override
-	public Map<String, Integer> getCount() {
-		lock.readLock().lock();
-		try {
-			return super.getCount();
-		} finally {
-			lock.readLock().unlock();
+	private synchronized void publish(List<List<Segment>> changes) {
+		snapshot = snapshot.with(changes);
+	}
+
+	/**
+	 * Returns a list of changes that leaves every shard as it is.
+	 *
+	 * @return one null per shard
+	 */
+	private ArrayList<List<Segment>> noChanges() {
+		return new ArrayList<>(Collections.nCopies(shards.length, null));
+	}
+
+	/**
+	 * Returns every shard index.
+	 *
+	 * @return a set holding every shard index
+	 */
+	private BitSet all() {
+		BitSet all = new BitSet(shards.length);
+		all.set(0, shards.length);
+		return all;
+	}
+
+	/**
+	 * Takes the write locks of some shards, in increasing order so writers that
+	 * need several shards cannot deadlock.
+	 *
+	 * @param touched the shard indexes
+	 */
+	private void lock(BitSet touched) {
+		for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+			shards[i].lock.writeLock().lock();
 		}
+	}
 
+	/**
+	 * Releases the write locks taken by {@link #lock(BitSet)}.
+	 *
+	 * @param touched the shard indexes
+	 */
+	private void unlock(BitSet touched) {
+		for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+			shards[i].lock.writeLock().unlock();
+		}
 	}
 
 	/**
-	 * checks to see if word is in index
+	 * Returns the index of the shard a word belongs to.
 	 *
-	 * @param word word that is getting checked
-	 * @return if index has word
+	 * @param word the word
+	 * @return the shard index
 	 */
-	@Override
-	public boolean contains(String word) {
-		lock.readLock().lock();
-		try {
-			return super.contains(word);
-		} finally {
-			lock.readLock().unlock();
+	private int shardOf(String word) {
+		return shardOf(word, shards.length);
+	}
+
+	/**
+	 * Returns the index of the shard a word belongs to.
+	 *
+	 * @param word       the word
+	 * @param shardCount the number of shards
+	 * @return the shard index
+	 */
+	private static int shardOf(String word, int shardCount) {
+		return Math.floorMod(word.hashCode(), shardCount);
+	}
+
+	/**
+	 * Returns the indexes of a list of segments.
+	 *
+	 * @param segments the segments
+	 * @return the index of each segment
+	 */
+	private static List<InvertedIndex> indexes(List<Segment> segments) {
+		ArrayList<InvertedIndex> indexes = new ArrayList<>(segments.size());
+		for (Segment segment : segments) {
+			indexes.add(segment.index);
 		}
+		return indexes;
 	}
 
 	/**
-	 * checks if the map has the specific word and if word contain path.
+	 * Merges segments into one new segment, pairing neighbours until one is left
+	 * so each word is copied about log(n) times instead of n times. Deleted
+	 * documents are dropped from the result.
 	 *
-	 * @param word word that is getting checked
-	 * @param path path that is getting checked
-	 * @return if has word and path
+	 * @param inputs the segments to merge
+	 * @return the merged segment
 	 */
-	@Override
-	public boolean contains(String word, String path) {
-		lock.readLock().lock();
-		try {
-			return super.contains(word, path);
-		} finally {
-			lock.readLock().unlock();
+	private static Segment merge(List<Segment> inputs) {
+		ArrayList<InvertedIndex> round = new ArrayList<>(indexes(inputs));
+		while (round.size() > 1) {
+			ArrayList<InvertedIndex> next = new ArrayList<>((round.size() + 1) / 2);
+			for (int i = 0; i < round.size(); i += 2) {
+				next.add(i + 1 < round.size() ? InvertedIndex.merge(round.get(i), round.get(i + 1)) : round.get(i));
+			}
+			round = next;
+		}
+
+		BitSet documents = new BitSet();
+		for (Segment input : inputs) {
+			documents.or(input.documents);
+		}
+
+		InvertedIndex merged = round.get(0);
+		BitSet deleted = merged.getDocuments().getDeleted();
+		if (documents.intersects(deleted)) {
+			merged = InvertedIndex.without(merged, deleted);
+			documents.andNot(deleted);
 		}
+		return new Segment(merged, documents);
 	}
 
 	/**
-	 * checks if the map contains the specific word, path and index.
+	 * One immutable version of the whole index: the segment list of every shard
+	 * at the moment it was published. Every read works on the snapshot it
+	 * started with, so a search never sees half of a write.
+	 *
+	 * @author Jaden
 	 *
-	 * @param word    word that is getting checked
-	 * @param path    path that is getting checked
-	 * @param postion postion that is getting checked
-	 * @return if has word and path at postion
 	 */
-	@Override
-	public boolean contains(String word, String path, int postion) {
-		lock.readLock().lock();
-		try {
-			return super.contains(word, path, postion);
-		} finally {
-			lock.readLock().unlock();
+	public static class Snapshot extends InvertedIndex {
+
+		/**
+		 * The version number, one more than the snapshot it replaced
+		 */
+		private final long version;
+
+		/**
+		 * The segments of each shard
+		 */
+		private final List<List<Segment>> shards;
+
+		/**
+		 * Constructor
+		 *
+		 * @param documents the document table shared by every segment
+		 * @param version   the version number
+		 * @param shards    the segments of each shard
+		 */
+		private Snapshot(DocumentTable documents, long version, List<List<Segment>> shards) {
+			super(documents);
+			this.version = version;
+			this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		}
+
+		/**
+		 * Returns the next version of this snapshot.
+		 *
+		 * @param changes the new segment list of each shard, or null for shards
+		 *                that did not change
+		 * @return the new snapshot
+		 */
+		private Snapshot with(List<List<Segment>> changes) {
+			ArrayList<List<Segment>> updated = new ArrayList<>(shards);
+			for (int i = 0; i < changes.size(); i++) {
+				if (changes.get(i) != null) {
+					updated.set(i, changes.get(i));
+				}
+			}
+			Snapshot next = new Snapshot(getDocuments(), version + 1, updated);
+			next.setScorer(getScorer());
+			return next;
+		}
+
+		@Override
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Returns the segments of every shard.
+		 *
+		 * @return the segments
+		 */
+		private List<Segment> getSegments() {
+			if (shards.size() == 1) {
+				return shards.get(0);
+			}
+
+			ArrayList<Segment> segments = new ArrayList<>();
+			for (List<Segment> shard : shards) {
+				segments.addAll(shard);
+			}
+			return segments;
+		}
+
+		/**
+		 * Returns the segments of the shard a word belongs to.
+		 *
+		 * @param word the word
+		 * @return the segments that may hold the word
+		 */
+		private List<Segment> getSegments(String word) {
+			return shards.get(shardOf(word, shards.size()));
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		public void addElement(String word, String file, Integer pos) {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		public void addAll(InvertedIndex other) {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		public void removeDocuments(Collection<String> locations) {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		public boolean deleteDocument(String location) {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		public void reclaimDeleted() {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
+		}
+
+		/**
+		 * Does exactSearch of a Collection of quieries, only visiting the shards
+		 * the queries hash to
+		 *
+		 * @param queries the queries being searched
+		 * @param k       the most results to return, or {@link #ALL}
+		 * @return an arraylist of the best k results, in order
+		 */
+		@Override
+		public ArrayList<Result> exactSearch(Collection<String> queries, int k) {
+			BitSet touched = new BitSet(shards.size());
+			for (String query : queries) {
+				touched.set(shardOf(query, shards.size()));
+			}
+
+			ArrayList<Segment> segments = new ArrayList<>();
+			for (int i = touched.nextSetBit(0); i >= 0; i = touched.nextSetBit(i + 1)) {
+				segments.addAll(shards.get(i));
+			}
+			return exactSearch(indexes(segments), queries, k, getScorer());
+		}
+
+		/**
+		 * Does partialSearch of a Collection of quieries
+		 *
+		 * @param queries the queries being searched
+		 * @param k       the most results to return, or {@link #ALL}
+		 * @return an arraylist of the best k results, in order
+		 */
+		@Override
+		public ArrayList<Result> partialSearch(Collection<String> queries, int k) {
+			return partialSearch(indexes(getSegments()), queries, k, getScorer());
+
+		}
+
+		@Override
+		protected List<InvertedIndex> getSearchIndexes() {
+			return indexes(getSegments());
+		}
+
+		/**
+		 * will output to file using method in SimpleJsonWriter
+		 *
+		 * @param outFile file name of file that is getting written
+		 * @throws IOException
+		 */
+		@Override
+		public void printIndex(Path outFile) throws IOException {
+			List<Segment> segments = getSegments();
+			if (segments.size() == 1) {
+				segments.get(0).index.printIndex(outFile);
+			} else if (segments.isEmpty()) {
+				super.printIndex(outFile);
+			} else {
+				ThreadSafeInvertedIndex.merge(segments).index.printIndex(outFile);
+			}
+		}
+
+		/**
+		 * getter for count
+		 *
+		 * @return count as a unmodifiableMap
+		 */
+		@Override
+		public Map<String, Integer> getCount() {
+			BitSet documents = new BitSet();
+			for (Segment segment : getSegments()) {
+				documents.or(segment.documents);
+			}
+			documents.andNot(getDocuments().getDeleted());
+
+			TreeMap<String, Integer> counts = new TreeMap<>();
+			for (int id = documents.nextSetBit(0); id >= 0; id = documents.nextSetBit(id + 1)) {
+				counts.put(getDocuments().getLocation(id), getDocuments().getCount(id));
+			}
+			return Collections.unmodifiableMap(counts);
+
+		}
+
+		/**
+		 * checks to see if word is in index
+		 *
+		 * @param word word that is getting checked
+		 * @return if index has word
+		 */
+		@Override
+		public boolean contains(String word) {
+			for (Segment segment : getSegments(word)) {
+				if (segment.index.contains(word)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * checks if the map has the specific word and if word contain path.
+		 *
+		 * @param word word that is getting checked
+		 * @param path path that is getting checked
+		 * @return if has word and path
+		 */
+		@Override
+		public boolean contains(String word, String path) {
+			for (Segment segment : getSegments(word)) {
+				if (segment.index.contains(word, path)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * checks if the map contains the specific word, path and index.
+		 *
+		 * @param word    word that is getting checked
+		 * @param path    path that is getting checked
+		 * @param postion postion that is getting checked
+		 * @return if has word and path at postion
+		 */
+		@Override
+		public boolean contains(String word, String path, int postion) {
+			for (Segment segment : getSegments(word)) {
+				if (segment.index.contains(word, path, postion)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * getter for set of words
+		 *
+		 * @return an unmodifiable set of words
+		 */
+		@Override
+		public Set<String> getWords() {
+			List<Segment> segments = getSegments();
+			if (segments.size() == 1) {
+				return segments.get(0).index.getWords();
+			}
+
+			TreeSet<String> words = new TreeSet<>();
+			for (Segment segment : segments) {
+				words.addAll(segment.index.getWords());
+			}
+			return Collections.unmodifiableSet(words);
+
+		}
+
+		@Override
+		public Set<String> getLocations(String word) {
+			TreeSet<String> locations = new TreeSet<>();
+			for (Segment segment : getSegments(word)) {
+				locations.addAll(segment.index.getLocations(word));
+			}
+			return Collections.unmodifiableSet(locations);
+
+		}
+
+		/**
+		 * getter for set of postions
+		 *
+		 * @param word
+		 * @param location
+		 * @return an unmodifiable set of Positions
+		 */
+		@Override
+		public Set<Integer> getPositions(String word, String location) {
+			for (Segment segment : getSegments(word)) {
+				if (segment.index.contains(word, location)) {
+					return segment.index.getPositions(word, location);
+				}
+			}
+			return Collections.emptySet();
+
+		}
+
+		/**
+		 * returns how many words is in inverted index.
+		 *
+		 * @return size of inverted index.
+		 */
+		@Override
+		public int size() {
+			return getWords().size();
+
+		}
+
+		/**
+		 * returns how many paths are found in word.
+		 *
+		 * @param word to check
+		 * @return amount of paths, return 0 if not found
+		 */
+		@Override
+		public int size(String word) {
+			int size = 0;
+			for (Segment segment : getSegments(word)) {
+				size += segment.index.size(word);
+			}
+			return size;
+
+		}
+
+		/**
+		 * Returns the postings of a word across every segment of its shard.
+		 *
+		 * @param word the word
+		 * @return new postings holding the documents of every segment, or null if
+		 *         the word is not in the index
+		 */
+		@Override
+		protected Postings getPostings(String word) {
+			Postings merged = null;
+			for (Segment segment : getSegments(word)) {
+				Postings postings = segment.index.getPostings(word);
+				if (postings != null) {
+					merged = merged == null ? postings : Postings.merge(merged, postings);
+				}
+			}
+			return merged;
+		}
+
+		/**
+		 * Walks the postings of the word in every segment of its shard at once,
+		 * without merging them into a copy.
+		 */
+		@Override
+		protected PostingsIterator getPostingsIterator(String word) {
+			ArrayList<PostingsIterator> parts = new ArrayList<>();
+			for (Segment segment : getSegments(word)) {
+				PostingsIterator postings = segment.index.getPostingsIterator(word);
+				if (postings != null) {
+					parts.add(postings);
+				}
+			}
+			if (parts.isEmpty()) {
+				return null;
+			}
+			return parts.size() == 1 ? parts.get(0) : new MergedPostingsIterator(parts);
+		}
+
+		@Override
+		protected Iterable<String> getWords(String prefix) {
+			TreeSet<String> words = new TreeSet<>();
+			for (Segment segment : getSegments()) {
+				segment.index.getWords(prefix).forEach(words::add);
+			}
+			return words;
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, a snapshot is read-only
+		 */
+		@Override
+		protected void putPostings(String word, Postings postings) {
+			throw new UnsupportedOperationException("A snapshot is read-only.");
 		}
 	}
 
 	/**
-	 * getter for set of words
+	 * The writer side of the words that hash to one shard. Searches never touch
+	 * it; they read the shard's segments from the current {@link Snapshot}.
+	 *
+	 * @author Jaden
 	 *
-	 * @return an unmodifiable set of words
 	 */
-	@Override
-	public Set<String> getWords() {
-		lock.readLock().lock();
-		try {
-			return super.getWords();
-		} finally {
-			lock.readLock().unlock();
+	private class Shard {
+
+		/**
+		 * The position of the shard
+		 */
+		private final int id;
+
+		/**
+		 * Held by writers while they change the shard's segment list; searches
+		 * never take it
+		 */
+		private final SimpleReadWriteLock lock;
+
+		/**
+		 * Documents that are in some segment of this shard
+		 */
+		private final BitSet indexed;
+
+		/**
+		 * Held while merging
+		 */
+		private final Object merging;
+
+		/**
+		 * Constructor
+		 *
+		 * @param id the position of the shard
+		 */
+		private Shard(int id) {
+			this.id = id;
+			lock = new SimpleReadWriteLock();
+			indexed = new BitSet();
+			merging = new Object();
+		}
+
+		/**
+		 * Returns the published segments of this shard.
+		 *
+		 * @return the segments in the current snapshot
+		 */
+		private List<Segment> current() {
+			return snapshot.shards.get(id);
+		}
+
+		/**
+		 * Returns the segment list with a new segment added, merging it with the
+		 * segments that already hold any of its documents. Must be called while
+		 * holding the write lock.
+		 *
+		 * @param segment the segment to add
+		 * @return the new segment list
+		 */
+		private List<Segment> added(Segment segment) {
+			return added(current(), segment);
+		}
+
+		/**
+		 * Returns a segment list with a new segment added, as by
+		 * {@link #added(Segment)}, starting from a list that is about to be
+		 * published instead of the current one.
+		 *
+		 * @param base    the segment list to add to
+		 * @param segment the segment to add
+		 * @return the new segment list
+		 */
+		private List<Segment> added(List<Segment> base, Segment segment) {
+			ArrayList<Segment> updated = new ArrayList<>();
+			if (!segment.documents.intersects(indexed)) {
+				updated.addAll(base);
+				updated.add(segment);
+			} else {
+				ArrayList<Segment> owners = new ArrayList<>();
+				for (Segment existing : base) {
+					if (existing.documents.intersects(segment.documents)) {
+						owners.add(existing);
+					} else {
+						updated.add(existing);
+					}
+				}
+				owners.add(segment);
+				updated.add(merge(owners));
+			}
+			indexed.or(segment.documents);
+			return Collections.unmodifiableList(updated);
+		}
+
+		/**
+		 * Returns the segment list with some documents left out, replacing each
+		 * segment that holds one of them with a copy. Must be called while
+		 * holding the write lock.
+		 *
+		 * @param removed the IDs of the documents to drop
+		 * @return the new segment list, or null if no segment holds them
+		 */
+		private List<Segment> dropped(BitSet removed) {
+			List<Segment> current = current();
+			if (current.stream().noneMatch(segment -> segment.documents.intersects(removed))) {
+				return null;
+			}
+
+			ArrayList<Segment> updated = new ArrayList<>();
+			for (Segment segment : current) {
+				if (!segment.documents.intersects(removed)) {
+					updated.add(segment);
+				} else {
+					BitSet remaining = (BitSet) segment.documents.clone();
+					remaining.andNot(removed);
+					if (!remaining.isEmpty()) {
+						updated.add(new Segment(InvertedIndex.without(segment.index, removed), remaining));
+					}
+				}
+			}
+			return Collections.unmodifiableList(updated);
+		}
+
+		/**
+		 * Publishes a new segment list for this shard if the current one is
+		 * still the expected one.
+		 *
+		 * @param expected the list the new one was built from
+		 * @param segments the new list
+		 * @param all      true if every segment of expected must still be there,
+		 *                 false if the list must not have changed at all
+		 * @return true if the new list was published
+		 */
+		private boolean replace(List<Segment> expected, List<Segment> segments, boolean all) {
+			lock.writeLock().lock();
+			try {
+				List<Segment> current = current();
+				if (all ? !current.containsAll(expected) : current != expected) {
+					return false;
+				}
+
+				ArrayList<List<Segment>> changes = noChanges();
+				if (all) {
+					ArrayList<Segment> updated = new ArrayList<>(current);
+					updated.removeAll(expected);
+					updated.addAll(segments);
+					changes.set(id, Collections.unmodifiableList(updated));
+				} else {
+					changes.set(id, segments);
+				}
+				publish(changes);
+				return true;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Merges all segments into one. Used before operations that need a single
+		 * view of the whole index, like writing it out. Does nothing while a
+		 * pinned segment is present.
+		 */
+		private void compact() {
+			while (true) {
+				List<Segment> current = current();
+				if (current.size() <= 1 || current.stream().anyMatch(segment -> segment.pinned)) {
+					return;
+				}
+
+				if (replace(current, List.of(merge(current)), false)) {
+					return;
+				}
+			}
 		}
 
+		/**
+		 * Merges full tiers until none are left. Only one thread merges a shard
+		 * at a time; others wait here for it to finish. The merge itself runs
+		 * without holding the lock; the result is only published if all of its
+		 * inputs are still in the segment list.
+		 */
+		private void mergeSegments() {
+			synchronized (merging) {
+				List<Segment> inputs;
+				while ((inputs = pickMerge(current())) != null) {
+					replace(inputs, List.of(merge(inputs)), true);
+				}
+			}
+		}
+
+		/**
+		 * Finds the lowest tier with enough segments to merge.
+		 *
+		 * @param current the current segments
+		 * @return the segments to merge, or null if no tier is full
+		 */
+		private List<Segment> pickMerge(List<Segment> current) {
+			TreeMap<Integer, ArrayList<Segment>> tiers = new TreeMap<>();
+			for (Segment segment : current) {
+				if (segment.pinned) {
+					continue;
+				}
+				tiers.computeIfAbsent(segment.tier, key -> new ArrayList<>()).add(segment);
+			}
+			for (ArrayList<Segment> tier : tiers.values()) {
+				if (tier.size() >= MERGE_FACTOR) {
+					return new ArrayList<>(tier.subList(0, MERGE_FACTOR));
+				}
+			}
+			return null;
+		}
 	}
 
-	@Override
-	public Set<String> getLocations(String word) {
-		lock.readLock().lock();
-		try {
-			return super.getLocations(word);
-		} finally {
-			lock.readLock().unlock();
+	/**
+	 * Walks the postings of one word in several segments as one list in
+	 * document order, moving each segment's own iterator forward as needed. A
+	 * document is normally in only one segment of a shard; if it is in more,
+	 * its position lists are joined the way {@link Postings#merge} joins them.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private static class MergedPostingsIterator implements PostingsIterator {
+
+		/**
+		 * The iterator of each segment
+		 */
+		private final PostingsIterator[] parts;
+
+		/**
+		 * The current document of each part, -1 before its first one, or
+		 * Integer.MAX_VALUE once it has no more
+		 */
+		private final int[] documents;
+
+		/**
+		 * The number of documents in every part together
+		 */
+		private final int size;
+
+		/**
+		 * The current document, -1 before the first one, or Integer.MAX_VALUE at
+		 * the end
+		 */
+		private int document;
+
+		/**
+		 * The joined positions of the current document, once asked for, if more
+		 * than one part holds it
+		 */
+		private PostingList joined;
+
+		/**
+		 * Constructor
+		 *
+		 * @param parts the iterators of the segments, none of them moved yet
+		 */
+		private MergedPostingsIterator(List<PostingsIterator> parts) {
+			this.parts = parts.toArray(new PostingsIterator[0]);
+			this.documents = new int[this.parts.length];
+			Arrays.fill(documents, -1);
+			int size = 0;
+			for (PostingsIterator part : this.parts) {
+				size += part.size();
+			}
+			this.size = size;
+			this.document = -1;
+			this.joined = null;
+		}
+
+		@Override
+		public boolean next() {
+			if (document == Integer.MAX_VALUE) {
+				return false;
+			}
+			for (int i = 0; i < parts.length; i++) {
+				if (documents[i] == document) {
+					documents[i] = parts[i].next() ? parts[i].document() : Integer.MAX_VALUE;
+				}
+			}
+			return settle();
+		}
+
+		@Override
+		public boolean advance(int target) {
+			for (int i = 0; i < parts.length; i++) {
+				if (documents[i] < target) {
+					documents[i] = parts[i].advance(target) ? parts[i].document() : Integer.MAX_VALUE;
+				}
+			}
+			return settle();
+		}
+
+		/**
+		 * Moves to the lowest current document of the parts.
+		 *
+		 * @return true if there is one, false at the end
+		 */
+		private boolean settle() {
+			int lowest = Integer.MAX_VALUE;
+			for (int current : documents) {
+				lowest = Math.min(lowest, current);
+			}
+			document = lowest;
+			joined = null;
+			return lowest != Integer.MAX_VALUE;
 		}
 
+		@Override
+		public int document() {
+			return document;
+		}
+
+		@Override
+		public int frequency() {
+			int frequency = 0;
+			for (int i = 0; i < parts.length; i++) {
+				if (documents[i] == document) {
+					frequency += parts[i].frequency();
+				}
+			}
+			return frequency;
+		}
+
+		@Override
+		public PostingList positions() {
+			if (joined != null) {
+				return joined;
+			}
+			PostingList first = null;
+			for (int i = 0; i < parts.length; i++) {
+				if (documents[i] == document) {
+					if (first == null) {
+						first = parts[i].positions();
+					} else {
+						if (joined == null) {
+							joined = new PostingList();
+							joined.addAll(first);
+						}
+						joined.addAll(parts[i].positions());
+					}
+				}
+			}
+			return joined != null ? joined : first;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int maxFrequency(int target) {
+			int highest = 0;
+			for (int i = 0; i < parts.length; i++) {
+				if (documents[i] == Integer.MAX_VALUE) {
+					continue;
+				}
+				int bound = documents[i] >= target ? parts[i].frequency() : parts[i].maxFrequency(target);
+				highest = Math.max(highest, bound);
+			}
+			return highest;
+		}
 	}
 
 	/**
-	 * getter for set of postions
+	 * An immutable piece of the index and the documents it holds.
+	 *
+	 * @author Jaden
 	 *
-	 * @param word
-	 * @param location
-	 * @return an unmodifiable set of Positions
 	 */
-	@Override
-	public Set<Integer> getPositions(String word, String location) {
-		lock.readLock().lock();
-		try {
-			return super.getPositions(word, location);
-		} finally {
-			lock.readLock().unlock();
+	private static class Segment {
+
+		/**
+		 * The words of the segment; never modified once published
+		 */
+		private final InvertedIndex index;
+
+		/**
+		 * The IDs of the documents in the segment
+		 */
+		private final BitSet documents;
+
+		/**
+		 * The merge tier: segments with 1 to 9 documents are tier 0, 10 to 99 are
+		 * tier 1, and so on for {@link ThreadSafeInvertedIndex#MERGE_FACTOR} 10
+		 */
+		private final int tier;
+
+		/**
+		 * Whether the segment is left out of merges
+		 */
+		private final boolean pinned;
+
+		/**
+		 * Constructor
+		 *
+		 * @param index the words of the segment
+		 */
+		private Segment(InvertedIndex index) {
+			this(index, index.getDocumentIds(), false);
 		}
 
+		/**
+		 * Constructor
+		 *
+		 * @param index     the words of the segment
+		 * @param documents the documents in the segment
+		 */
+		private Segment(InvertedIndex index, BitSet documents) {
+			this(index, documents, false);
+		}
+
+		/**
+		 * Constructor
+		 *
+		 * @param index     the words of the segment
+		 * @param documents the documents in the segment
+		 * @param pinned    whether to leave the segment out of merges
+		 */
+		private Segment(InvertedIndex index, BitSet documents, boolean pinned) {
+			this.index = index;
+			this.documents = documents;
+			this.pinned = pinned;
+			int tier = 0;
+			for (int count = documents.cardinality(); count >= MERGE_FACTOR; count /= MERGE_FACTOR) {
+				tier++;
+			}
+			this.tier = tier;
+		}
+
+		/**
+		 * Returns the number of documents in the segment.
+		 *
+		 * @return the number of documents
+		 */
+		public int getDocumentCount() {
+			return documents.cardinality();
+		}
 	}
 
 	/**
-	 * returns how many words is in inverted index.
+	 * A read-only view of the words of another index that belong to one shard,
+	 * so an index loaded from disk can be split between shards without copying
+	 * it.
+	 *
+	 * @author Jaden
 	 *
-	 * @return size of inverted index.
 	 */
-	@Override
-	public int size() {
-		lock.readLock().lock();
-		try {
-			return super.size();
-		} finally {
-			lock.readLock().unlock();
+	private static class ShardView extends InvertedIndex {
+
+		/**
+		 * The index being viewed
+		 */
+		private final InvertedIndex base;
+
+		/**
+		 * The shard this view shows
+		 */
+		private final int shard;
+
+		/**
+		 * The number of shards
+		 */
+		private final int shardCount;
+
+		/**
+		 * Constructor
+		 *
+		 * @param base       the index being viewed
+		 * @param shard      the shard this view shows
+		 * @param shardCount the number of shards
+		 */
+		private ShardView(InvertedIndex base, int shard, int shardCount) {
+			super(base.getDocuments());
+			this.base = base;
+			this.shard = shard;
+			this.shardCount = shardCount;
+		}
+
+		/**
+		 * Checks if a word belongs to this view's shard.
+		 *
+		 * @param word the word
+		 * @return true if the word hashes to this shard
+		 */
+		private boolean owns(String word) {
+			return shardOf(word, shardCount) == shard;
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, the view is read-only
+		 */
+		@Override
+		public void addElement(String word, String file, Integer pos) {
+			throw new UnsupportedOperationException("A shard view is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, the view is read-only
+		 */
+		@Override
+		public void addAll(InvertedIndex other) {
+			throw new UnsupportedOperationException("A shard view is read-only.");
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always, the view is read-only
+		 */
+		@Override
+		public void removeDocuments(Collection<String> locations) {
+			throw new UnsupportedOperationException("A shard view is read-only.");
+		}
+
+		@Override
+		public boolean contains(String word) {
+			return owns(word) && base.contains(word);
+		}
+
+		@Override
+		public Set<String> getWords() {
+			return new AbstractSet<>() {
+				@Override
+				public Iterator<String> iterator() {
+					return StreamSupport.stream(base.getWords().spliterator(), false).filter(word -> owns(word))
+							.iterator();
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return o instanceof String && ShardView.this.contains((String) o);
+				}
+
+				@Override
+				public int size() {
+					return (int) StreamSupport.stream(spliterator(), false).count();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return getWords().size();
+		}
+
+		@Override
+		public BitSet getDocumentIds() {
+			return base.getDocumentIds();
+		}
+
+		@Override
+		protected Postings getPostings(String word) {
+			return owns(word) ? base.getPostings(word) : null;
 		}
 
+		@Override
+		protected PostingsIterator getPostingsIterator(String word) {
+			return owns(word) ? base.getPostingsIterator(word) : null;
+		}
+
+		@Override
+		protected Iterable<String> getWords(String prefix) {
+			return () -> StreamSupport.stream(base.getWords(prefix).spliterator(), false).filter(word -> owns(word))
+					.iterator();
+		}
+
+		@Override
+		protected int getTermId(String word) {
+			return owns(word) ? base.getTermId(word) : -1;
+		}
+
+		@Override
+		protected int[] getTermRange(String prefix) {
+			return base.getTermRange(prefix);
+		}
+
+		@Override
+		protected String getTerm(int term) {
+			return base.getTerm(term);
+		}
+
+		/**
+		 * Returns an iterator over the documents of a word of the base index,
+		 * which is null for words of other shards.
+		 *
+		 * @param term the term ID of the word in the base index
+		 * @return an iterator over its postings, or null if it is not in this
+		 *         shard
+		 */
+		@Override
+		protected PostingsIterator getPostingsIterator(int term) {
+			return owns(base.getTerm(term)) ? base.getPostingsIterator(term) : null;
+		}
+
+		@Override
+		protected ImpactIterator getImpactIterator(int term) {
+			return owns(base.getTerm(term)) ? base.getImpactIterator(term) : null;
+		}
+
+		@Override
+		protected void putPostings(String word, Postings postings) {
+			throw new UnsupportedOperationException("A shard view is read-only.");
+		}
 	}
 
 	/**
-	 * returns how many paths are found in word.
+	 * Waits in the background for new segments and merges any
+	 * {@link ThreadSafeInvertedIndex#MERGE_FACTOR} segments of a shard that share
+	 * a tier, until it is interrupted by
+	 * {@link ThreadSafeInvertedIndex#shutdown()}.
+	 *
+	 * @author Jaden
 	 *
-	 * @param word to check
-	 * @return amount of paths, return 0 if not found
 	 */
-	@Override
-	public int size(String word) {
-		lock.readLock().lock();
-		try {
-			return super.size(word);
-		} finally {
-			lock.readLock().unlock();
+	private class MergeWorker extends Thread {
+
+		/**
+		 * Whether new segments arrived since the last check
+		 */
+		private boolean signalled;
+
+		/**
+		 * Constructor
+		 */
+		public MergeWorker() {
+			super("segment-merger");
+			setDaemon(true);
+			signalled = false;
+		}
+
+		/**
+		 * Tells the worker that a segment list changed.
+		 */
+		public synchronized void wake() {
+			signalled = true;
+			this.notifyAll();
 		}
 
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				synchronized (this) {
+					while (!signalled) {
+						try {
+							this.wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					signalled = false;
+				}
+
+				try {
+					for (Shard shard : shards) {
+						shard.mergeSegments();
+					}
+				} catch (RuntimeException e) {
+					// catch runtime exceptions to avoid losing the worker
+					System.err.println("Warning: Segment merger encountered an exception while merging.");
+				}
+			}
+		}
 	}
 
 }
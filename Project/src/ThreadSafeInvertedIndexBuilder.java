@@ -1,5 +1,6 @@
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
 
 /**
  * ThreadSafe version of InvertedIndexBuilder
@@ -18,6 +19,23 @@ public class ThreadSafeInvertedIndexBuilder extends InvertedIndexBuilder {
 	 */
 	private final WorkQueue queue;
 
+	/**
+	 * Merges the local indexes of the tasks before they reach the index
+	 */
+	private final IndexReducer reducer;
+
+	/**
+	 * The number of files each worker may have queued or in progress before
+	 * {@link #addPath(Path)} waits
+	 */
+	public static final int FILES_PER_WORKER = 4;
+
+	/**
+	 * One permit for each file that may be queued or in progress, so a walk over
+	 * millions of files only ever holds a few of them in the queue
+	 */
+	private final Semaphore slots;
+
 	/**
 	 * Constructor
 	 *
@@ -28,21 +46,53 @@ public class ThreadSafeInvertedIndexBuilder extends InvertedIndexBuilder {
 		super(index);
 		this.index = index;
 		this.queue = queue;
+		this.reducer = new IndexReducer();
+		this.slots = new Semaphore(Math.max(1, queue.size()) * FILES_PER_WORKER);
 	}
 
+	/**
+	 * Queues the text files under a path while walking it, then waits for them.
+	 * If the walk fails part way, the files queued so far are still added to the
+	 * index before the error is thrown, as the single-threaded builder does.
+	 */
 	@Override
 	public void build(Path path) throws IOException {
-		super.build(path);
+		try {
+			super.build(path);
+		} finally {
+			finish();
+		}
+	}
+
+	/**
+	 * Waits for the tasks to finish and adds the merged result of their local
+	 * indexes to the index in one step.
+	 */
+	@Override
+	protected void finish() {
 		try {
 			queue.finish();
 		} catch (Exception e) {
 			System.out.println("The work queue encountered an error.");
 		}
+		index.addAll(reducer.drain());
 	}
 
+	/**
+	 * Queues a file to be indexed, first waiting while
+	 * {@link #FILES_PER_WORKER} files per worker are already queued or in
+	 * progress. Files larger than {@link MappedTextFile#CHUNK_SIZE} are split
+	 * into chunks that are indexed by different tasks. Must not be called from a
+	 * task of the queue, which could wait on itself.
+	 */
 	@Override
 	public void addPath(Path path) throws IOException {
-		queue.execute(new Task(path));
+		slots.acquireUninterruptibly();
+		if (MappedTextFile.isLarge(path)) {
+			queue.execute(new SplitTask(path));
+		} else {
+			queue.execute(new Task(path));
+		}
 	}
 
 	/**
@@ -66,12 +116,90 @@ public class ThreadSafeInvertedIndexBuilder extends InvertedIndexBuilder {
 		public void run() {
 			try {
 
-				InvertedIndex local = new InvertedIndex();
+				InvertedIndex local = reducer.newLocal();
 				addPath(local, path);
-				index.addAll(local);
+				reducer.add(local);
+
+			} catch (IOException e) {
+				System.out.println("There is an error adding a path: " + path);
+			} finally {
+				slots.release();
+			}
+		}
+	}
+
+	/**
+	 * Splits a large file into chunks and queues a task for each one.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class SplitTask implements Runnable {
+		/** The file to split */
+		private final Path path;
+
+		/**
+		 * @param path the file to split
+		 */
+		public SplitTask(Path path) {
+			this.path = path;
+		}
 
+		@Override
+		public void run() {
+			try {
+				MappedTextFile file = new MappedTextFile(path);
+				IndexReducer.Parts parts = reducer.newParts(file.getChunkCount());
+				for (int chunk = 0; chunk < file.getChunkCount(); chunk++) {
+					queue.execute(new ChunkTask(file, parts, chunk));
+				}
 			} catch (IOException e) {
 				System.out.println("There is an error adding a path: " + path);
+			} finally {
+				slots.release();
+			}
+		}
+	}
+
+	/**
+	 * Indexes one chunk of a large file, numbering its words from the start of
+	 * the chunk.
+	 *
+	 * @author Jaden
+	 *
+	 */
+	private class ChunkTask implements Runnable {
+		/** The file */
+		private final MappedTextFile file;
+
+		/** Collects the indexes of the chunks of the file */
+		private final IndexReducer.Parts parts;
+
+		/** The chunk to index */
+		private final int chunk;
+
+		/**
+		 * @param file  the file
+		 * @param parts collects the indexes of the chunks of the file
+		 * @param chunk the chunk to index
+		 */
+		public ChunkTask(MappedTextFile file, IndexReducer.Parts parts, int chunk) {
+			this.file = file;
+			this.parts = parts;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public void run() {
+			InvertedIndex local = reducer.newLocal();
+			int count = 0;
+			try {
+				count = file.addChunk(chunk, local, 0);
+			} catch (IOException | RuntimeException e) {
+				local = null;
+			}
+			if (!parts.finished(chunk, local, count)) {
+				System.out.println("There is an error adding a path: " + file.getPath());
 			}
 		}
 	}
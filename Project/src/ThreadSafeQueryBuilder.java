@@ -5,7 +5,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * A threadSafe version of QueryBuilder
@@ -30,6 +29,11 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 	 */
 	private final TreeMap<String, ArrayList<InvertedIndex.Result>> querySet;
 
+	/**
+	 * The index version each query was searched against
+	 */
+	private final TreeMap<String, Long> versions;
+
 	/**
 	 * Constructor
 	 *
@@ -39,6 +43,7 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 	public ThreadSafeQueryBuilder(ThreadSafeInvertedIndex index, WorkQueue workQueue) {
 		this.index = index;
 		this.querySet = new TreeMap<>();
+		this.versions = new TreeMap<>();
 		this.workQueue = workQueue;
 	}
 
@@ -73,6 +78,19 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 
 	}
 
+	/**
+	 * A getter for the index version of a query line
+	 *
+	 * @param queryLine the query
+	 * @return the index version, or -1 if the query was not searched
+	 */
+	@Override
+	public long getQueryVersion(String queryLine) {
+		synchronized (querySet) {
+			return versions.getOrDefault(queryLine, -1L);
+		}
+	}
+
 	/**
 	 * will write query from path
 	 *
@@ -104,12 +122,14 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 	 *
 	 * @param path        The path to the Query file.
 	 * @param exactSearch True if we are doing exact search.
+	 * @param k           the most results to keep per query, or
+	 *                    {@link InvertedIndex#ALL}
 	 * @throws IOException Could happen.
 	 */
 	@Override
-	public void makeQueryFile(Path path, boolean exactSearch) throws IOException {
+	public void makeQueryFile(Path path, boolean exactSearch, int k) throws IOException {
 
-		QueryBuilderInterface.super.makeQueryFile(path, exactSearch);
+		QueryBuilderInterface.super.makeQueryFile(path, exactSearch, k);
 		workQueue.finish();
 
 	}
@@ -119,10 +139,11 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 	 *
 	 * @param line        The line we are parsing.
 	 * @param exactSearch Wether we are doing exact search or not.
+	 * @param k           the most results to keep, or {@link InvertedIndex#ALL}
 	 */
 	@Override
-	public void makeQueryLine(String line, boolean exactSearch) {
-		workQueue.execute(new Task(line, exactSearch));
+	public void makeQueryLine(String line, boolean exactSearch, int k) {
+		workQueue.execute(new Task(line, exactSearch, k));
 
 	}
 
@@ -140,35 +161,44 @@ public class ThreadSafeQueryBuilder implements QueryBuilderInterface {
 		 */
 		private final boolean exact;
 
+		/**
+		 * The most results to keep
+		 */
+		private final int k;
+
 		/**
 		 * Construtor
 		 *
 		 * @param line  the line to be made
 		 * @param exact whether or not a exact search or nor
+		 * @param k     the most results to keep
 		 */
-		public Task(String line, boolean exact) {
+		public Task(String line, boolean exact, int k) {
 			this.line = line;
 			this.exact = exact;
+			this.k = k;
 		}
 
 		@Override
 		public void run() {
-			TreeSet<String> queries = TextFileStemmer.uniqueStems(line);
+			SearchQuery query = SearchQuery.parse(line);
 
-			if (queries.size() == 0) {
+			if (query.isEmpty()) {
 				return;
 			}
 
-			String joined = String.join(" ", queries);
+			String joined = query.toString();
 			synchronized (querySet) {
 				if (querySet.containsKey(joined)) {
 					return;
 				}
 			}
 
-			ArrayList<InvertedIndex.Result> local = index.search(queries, exact);
+			ThreadSafeInvertedIndex.Snapshot snapshot = index.getSnapshot();
+			ArrayList<InvertedIndex.Result> local = snapshot.search(query, exact, k);
 			synchronized (querySet) {
 				querySet.put(joined, local);
+				versions.put(joined, snapshot.getVersion());
 			}
 
 		}
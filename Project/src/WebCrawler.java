@@ -7,19 +7,12 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-import opennlp.tools.stemmer.snowball.SnowballStemmer;
-
 /**
  * @author jnhamid
  *
  */
 public class WebCrawler {
 
-	/**
-	 * Default stemmer.
-	 */
-	private static SnowballStemmer.ALGORITHM DEFAULT = SnowballStemmer.ALGORITHM.ENGLISH;
-
 	/**
 	 * The Inverted Index to populate
 	 */
@@ -40,6 +33,11 @@ public class WebCrawler {
 	 */
 	private Set<URL> links;
 
+	/**
+	 * Merges the local indexes of the tasks before they reach the index
+	 */
+	private final IndexReducer reducer;
+
 	/**
 	 * Constructor for the crawler class
 	 *
@@ -52,6 +50,7 @@ public class WebCrawler {
 		this.queue = queue;
 		this.limit = limit;
 		this.links = new HashSet<URL>();
+		this.reducer = new IndexReducer();
 	}
 
 	/**
@@ -66,18 +65,26 @@ public class WebCrawler {
 		int position = 0;
 		try (BufferedReader reader = new BufferedReader(new StringReader(cleaned));) {
 			String line = null;
-			SnowballStemmer stemmer = new SnowballStemmer(DEFAULT);
+			StemCache stemmer = StemCache.SHARED;
+			TextParser.Tokenizer tokenizer = new TextParser.Tokenizer();
 			while ((line = reader.readLine()) != null) {
-				for (String word : TextParser.parse(line)) {
+				tokenizer.reset(line);
+				String word;
+				while ((word = tokenizer.next()) != null) {
 					position++;
-					index.addElement(stemmer.stem(word).toString(), fileName, position);
+					index.addElement(stemmer.stem(word), fileName, position);
 				}
 			}
 		}
 	}
 
 	/**
-	 * This traverses the URLs and does all the hard work
+	 * This traverses the URLs and does all the hard work. The crawled pages are
+	 * added to the index together once the crawl is done, replacing any earlier
+	 * versions of them. Each page is fetched through
+	 * {@link WorkQueue#blocking(java.util.function.Supplier)}, so with a queue
+	 * that has a thread for every task the number of pages fetched at once follows its fetch limit
+	 * rather than the number of tasks that may use a core.
 	 *
 	 * @param seed the seed url
 	 * @throws IOException could happen
@@ -90,6 +97,7 @@ public class WebCrawler {
 		} catch (Exception e) {
 			System.out.println("The work queue encountered an error.");
 		}
+		index.replaceDocuments(reducer.drain());
 	}
 
 	/**
@@ -103,6 +111,16 @@ public class WebCrawler {
 		return this.index.search(queries, exact);
 	}
 
+	/**
+	 * Returns the current version of the index, which can be searched any
+	 * number of times without seeing pages crawled in the meantime.
+	 *
+	 * @return the current snapshot of the index
+	 */
+	public ThreadSafeInvertedIndex.Snapshot getSnapshot() {
+		return this.index.getSnapshot();
+	}
+
 	/**
 	 * A task class for multithreadig.
 	 *
@@ -127,15 +145,16 @@ public class WebCrawler {
 
 		@Override
 		public void run() {
-			HtmlCleaner htmlCleaner = new HtmlCleaner(this.url, HtmlFetcher.fetch(url, 3));
-			try {
-				if (HtmlFetcher.fetch(url, 3) == null) {
-					return;
-				}
+			String html = queue.blocking(() -> HtmlFetcher.fetch(url, 3));
+			if (html == null) {
+				return;
+			}
 
-				InvertedIndex local = new InvertedIndex();
+			try {
+				HtmlCleaner htmlCleaner = new HtmlCleaner(this.url, html);
+				InvertedIndex local = reducer.newLocal();
 				addStemmed(htmlCleaner.getHtml(), url.toString(), local);
-				index.addAll(local);
+				reducer.add(local);
 
 				synchronized (links) {
 					for (URL url : htmlCleaner.getUrls()) {
@@ -1,10 +1,36 @@
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * A simple work queue implementation based on the IBM Developer article by
  * Brian Goetz. It is up to the user of this class to keep track of whether
  * there is any pending work remaining.
  *
+ * Every worker has its own deque of tasks. A task submitted by a worker goes on
+ * the end of that worker's deque, and tasks submitted from other threads go on
+ * one shared queue; both are lock-free, so submitting never takes a lock. A
+ * worker takes the oldest task of its own deque, then of the shared queue, and
+ * when both are empty steals the oldest task of another worker's deque.
+ *
+ * Only one idle worker is woken at a time, and it wakes the next one if it
+ * finds more work than it takes, so a burst of tasks does not wake the whole
+ * pool. The pending count is atomic, so a task costs no monitor at all unless
+ * it is the last one {@link #finish()} waits for.
+ *
+ * A queue made with {@link #perTask(int, int)} limits how many tasks run at
+ * once with permits. Where the JVM has virtual threads, it has no pool and
+ * starts a virtual thread for every task. Otherwise its pool has a platform
+ * thread for every permit, so the number of threads stays bounded. A task gives
+ * its permit back while it waits in {@link #blocking(Supplier)}, which has a
+ * separate, usually much larger limit, so tasks that spend most of their time
+ * waiting on the network do not hold back the ones with work for a core.
+ *
  * @see <a href=
  *      "https://www.ibm.com/developerworks/library/j-jtp0730/index.html"> Java
  *      Theory and Practice: Thread Pools and Work Queues</a>
@@ -20,10 +46,16 @@ public class WorkQueue {
 	/**
 	 * Number of pending workers
 	 */
-	private int pending;
+	private final AtomicInteger pending;
+
+	/** The workers waiting for work, parked until they are woken. */
+	private final ConcurrentLinkedQueue<PoolWorker> idle;
 
-	/** Queue of pending work requests. */
-	private final LinkedList<Runnable> queue;
+	/** The tasks submitted from outside the pool. */
+	private final ConcurrentLinkedQueue<Runnable> submitted;
+
+	/** Whether an idle worker has been woken and has not looked for work yet. */
+	private final AtomicBoolean waking;
 
 	/** Used to signal the queue should be shutdown. */
 	private volatile boolean shutdown;
@@ -31,6 +63,36 @@ public class WorkQueue {
 	/** The default number of threads to use when not specified. */
 	public static final int DEFAULT = 5;
 
+	/** The default number of tasks that may wait on blocking work at once. */
+	public static final int DEFAULT_FETCHES = 64;
+
+	/**
+	 * Makes a virtual thread for every task, or null if the tasks run on the
+	 * pool of workers
+	 */
+	private final ThreadFactory factory;
+
+	/**
+	 * Permits for running tasks, or null if the pool does not limit them
+	 */
+	private final Semaphore running;
+
+	/**
+	 * Permits for blocking work, or null if the pool does not limit it
+	 */
+	private final Semaphore blocking;
+
+	/**
+	 * The number of tasks that may run at once
+	 */
+	private final int tasks;
+
+	/**
+	 * Whether the current thread is running a task of this queue and holds one
+	 * of its running permits
+	 */
+	private final ThreadLocal<Boolean> holding;
+
 	/**
 	 * Starts a work queue with the default number of threads.
 	 *
@@ -46,49 +108,163 @@ public class WorkQueue {
 	 * @param threads number of worker threads; should be greater than 1
 	 */
 	public WorkQueue(int threads) {
-		this.queue = new LinkedList<Runnable>();
+		this(threads, threads, 0);
+	}
+
+	/**
+	 * Starts a work queue with a pool of platform threads, which limits the
+	 * running and blocking tasks with permits if there are any.
+	 *
+	 * @param threads number of worker threads
+	 * @param tasks   the number of tasks that may run at once, outside of
+	 *                {@link #blocking(Supplier)}
+	 * @param fetches the number of tasks that may be inside
+	 *                {@link #blocking(Supplier)} at once, or 0 for no permits
+	 */
+	private WorkQueue(int threads, int tasks, int fetches) {
 		this.workers = new PoolWorker[threads];
+		this.idle = new ConcurrentLinkedQueue<>();
+		this.submitted = new ConcurrentLinkedQueue<>();
+		this.waking = new AtomicBoolean(false);
 		this.shutdown = false;
-		this.pending = 0;
+		this.pending = new AtomicInteger(0);
+		this.factory = null;
+		this.running = fetches > 0 ? new Semaphore(tasks) : null;
+		this.blocking = fetches > 0 ? new Semaphore(fetches) : null;
+		this.tasks = tasks;
+		this.holding = fetches > 0 ? ThreadLocal.withInitial(() -> false) : null;
 
 		// start the threads so they are waiting in the background
 		for (int i = 0; i < threads; i++) {
-			workers[i] = new PoolWorker();
-			workers[i].start();
+			workers[i] = new PoolWorker(i);
+		}
+		for (PoolWorker worker : workers) {
+			worker.start();
+		}
+	}
+
+	/**
+	 * Starts a work queue with a virtual thread for every task.
+	 *
+	 * @param tasks   the number of tasks that may run at once, outside of
+	 *                {@link #blocking(Supplier)}
+	 * @param fetches the number of tasks that may be inside
+	 *                {@link #blocking(Supplier)} at once
+	 * @param factory makes the virtual thread for each task
+	 */
+	private WorkQueue(int tasks, int fetches, ThreadFactory factory) {
+		this.workers = new PoolWorker[0];
+		this.idle = new ConcurrentLinkedQueue<>();
+		this.submitted = new ConcurrentLinkedQueue<>();
+		this.waking = new AtomicBoolean(false);
+		this.shutdown = false;
+		this.pending = new AtomicInteger(0);
+		this.factory = factory;
+		this.running = new Semaphore(tasks);
+		this.blocking = new Semaphore(fetches);
+		this.tasks = tasks;
+		this.holding = ThreadLocal.withInitial(() -> false);
+	}
+
+	/**
+	 * Starts a work queue that runs every task on its own virtual thread, with
+	 * separate limits for the tasks using a core and the tasks waiting on
+	 * blocking work. Where the JVM has no virtual threads, the tasks run on a
+	 * pool with a platform thread for every permit of either limit instead,
+	 * since starting a platform thread for every task could start thousands.
+	 *
+	 * @param tasks   the number of tasks that may run at once, outside of
+	 *                {@link #blocking(Supplier)}; at least 1
+	 * @param fetches the number of tasks that may be inside
+	 *                {@link #blocking(Supplier)} at once; at least 1
+	 * @return the work queue
+	 * @throws IllegalArgumentException if a limit is less than 1
+	 */
+	public static WorkQueue perTask(int tasks, int fetches) {
+		if (tasks < 1 || fetches < 1) {
+			throw new IllegalArgumentException("A work queue needs to run at least one task and one fetch at once.");
+		}
+		ThreadFactory virtual = virtualThreadFactory();
+		return virtual != null ? new WorkQueue(tasks, fetches, virtual) : new WorkQueue(tasks + fetches, tasks, fetches);
+	}
+
+	/**
+	 * Looks up the factory for virtual threads, which is only there from Java
+	 * 21 on, so that the queue still compiles and runs on older versions.
+	 *
+	 * @return the factory, or null if virtual threads are not available
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
 		}
 	}
 
 	/**
 	 * Adds a work request to the queue. A thread will process this request when
-	 * available.
+	 * available. A request made by a worker goes on its own deque; any other
+	 * goes on the shared queue.
 	 *
 	 * @param r work request (in the form of a {@link Runnable} object)
 	 */
 	public void execute(Runnable r) {
 		incrementPending();
-		synchronized (queue) {
-			queue.addLast(r);
-			queue.notifyAll();
+		if (factory != null) {
+			factory.newThread(new PerTaskWorker(r)).start();
+			return;
+		}
+		if (running != null) {
+			Runnable task = r;
+			r = () -> runPermitted(task);
+		}
+
+		Thread current = Thread.currentThread();
+		if (current instanceof PoolWorker && ((PoolWorker) current).getQueue() == this) {
+			((PoolWorker) current).deque.addLast(r);
+		} else {
+			submitted.add(r);
+		}
 
+		if (!idle.isEmpty()) {
+			signal();
 		}
 	}
 
 	/**
-	 * Thread safe way to incrementPending
+	 * Wakes one idle worker, unless one has been woken already and has not
+	 * looked for work yet, in which case that worker passes the signal on if
+	 * it finds more than it takes.
 	 */
-	private synchronized void incrementPending() {
-		pending++;
+	private void signal() {
+		if (waking.compareAndSet(false, true)) {
+			PoolWorker worker = idle.poll();
+			if (worker != null) {
+				LockSupport.unpark(worker);
+			} else {
+				waking.set(false);
+			}
+		}
 	}
 
 	/**
-	 * Thread safe way to decrementPending
+	 * Thread safe way to incrementPending
 	 */
-	private synchronized void decrementPending() {
-
-		pending--;
+	private void incrementPending() {
+		pending.incrementAndGet();
+	}
 
-		if (pending == 0) {
-			this.notifyAll();
+	/**
+	 * Thread safe way to decrementPending, which wakes {@link #finish()} when
+	 * the last pending task is done
+	 */
+	private void decrementPending() {
+		if (pending.decrementAndGet() == 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
 		}
 	}
 
@@ -97,7 +273,7 @@ public class WorkQueue {
 	 */
 	public void finish() {
 		synchronized (this) {
-			while (pending > 0) {
+			while (pending.get() > 0) {
 				try {
 					this.wait();
 				} catch (InterruptedException e) {
@@ -116,49 +292,220 @@ public class WorkQueue {
 
 		shutdown = true;
 
-		synchronized (queue) {
-			queue.notifyAll();
+		for (PoolWorker worker : workers) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	/**
+	 * Runs work that spends most of its time waiting, such as fetching a page.
+	 * When the queue limits its tasks with permits, the calling task gives up its
+	 * running permit for as long as it waits for and does the work, so another
+	 * task can use the core, and at most the fetch limit of tasks do blocking
+	 * work at once. Otherwise the work just runs on the calling thread.
+	 *
+	 * @param <T>  the type of the result
+	 * @param work the blocking work
+	 * @return the result of the work
+	 */
+	public <T> T blocking(Supplier<T> work) {
+		if (running == null) {
+			return work.get();
+		}
+		boolean task = holding.get();
+		if (task) {
+			running.release();
+		}
+		blocking.acquireUninterruptibly();
+		try {
+			return work.get();
+		} finally {
+			blocking.release();
+			if (task) {
+				running.acquireUninterruptibly();
+			}
 		}
 	}
 
 	/**
-	 * Returns the number of worker threads being used by the work queue.
+	 * Returns the number of worker threads being used by the work queue, or the
+	 * number of tasks that may run at once when the queue limits them with
+	 * permits.
 	 *
 	 * @return number of worker threads
 	 */
 	public int size() {
-		return workers.length;
+		return running == null ? workers.length : tasks;
+	}
+
+	/**
+	 * Checks if the tasks run on virtual threads.
+	 *
+	 * @return true if the queue starts a virtual thread for every task
+	 */
+	public boolean isVirtual() {
+		return factory != null;
+	}
+
+	/**
+	 * Runs a task once a running permit is free, holding the permit until it is
+	 * done. If a shutdown is detected by then, the task is skipped.
+	 *
+	 * @param task the task
+	 */
+	private void runPermitted(Runnable task) {
+		running.acquireUninterruptibly();
+		holding.set(true);
+		try {
+			if (!shutdown) {
+				task.run();
+			}
+		} catch (RuntimeException e) {
+			// catch runtime exceptions so the permit is given back
+			System.err.println("Warning: Work queue encountered an exception while running.");
+		} finally {
+			holding.set(false);
+			running.release();
+		}
+	}
+
+	/**
+	 * Runs one task on the thread started for it, once a running permit is
+	 * free.
+	 */
+	private class PerTaskWorker implements Runnable {
+
+		/**
+		 * The task
+		 */
+		private final Runnable task;
+
+		/**
+		 * Constructor
+		 *
+		 * @param task the task
+		 */
+		public PerTaskWorker(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				runPermitted(task);
+			} finally {
+				decrementPending();
+			}
+		}
 	}
 
 	/**
-	 * Waits until work is available in the work queue. When work is found, will
-	 * remove the work from the queue and run it. If a shutdown is detected, will
-	 * exit instead of grabbing new work from the queue. These threads will continue
-	 * running in the background until a shutdown is requested.
+	 * Waits until work is available in its own deque, in the shared queue or,
+	 * failing that, in the deque of another worker. When work is found, will
+	 * remove the work and run it. If a shutdown is detected, will exit instead of
+	 * grabbing new work. These threads will continue running in the background
+	 * until a shutdown is requested.
 	 */
 	private class PoolWorker extends Thread {
 
+		/**
+		 * The tasks waiting for this worker, unless another worker steals them
+		 */
+		private final ConcurrentLinkedDeque<Runnable> deque;
+
+		/**
+		 * The place of this worker in the pool
+		 */
+		private final int id;
+
+		/**
+		 * Constructor
+		 *
+		 * @param id the place of this worker in the pool
+		 */
+		public PoolWorker(int id) {
+			this.deque = new ConcurrentLinkedDeque<>();
+			this.id = id;
+		}
+
+		/**
+		 * Returns the work queue this worker belongs to.
+		 *
+		 * @return the work queue
+		 */
+		private WorkQueue getQueue() {
+			return WorkQueue.this;
+		}
+
+		/**
+		 * Checks if any worker's deque has a task.
+		 *
+		 * @return true if there is a task waiting
+		 */
+		private boolean hasWork() {
+			if (!submitted.isEmpty()) {
+				return true;
+			}
+			for (PoolWorker worker : workers) {
+				if (!worker.deque.isEmpty()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Takes the oldest task of this worker's deque or of the shared queue, or
+		 * steals the oldest task of the next worker's deque that has one.
+		 *
+		 * @return the task, or null if every deque is empty
+		 */
+		private Runnable take() {
+			Runnable r = deque.pollFirst();
+			if (r == null) {
+				r = submitted.poll();
+			}
+			for (int i = 1; r == null && i < workers.length; i++) {
+				r = workers[(id + i) % workers.length].deque.pollFirst();
+			}
+			return r;
+		}
+
 		@Override
 		public void run() {
 			Runnable r = null;
+			boolean signalled = false;
 
-			while (true) {
-				synchronized (queue) {
-					while (queue.isEmpty() && !shutdown) {
-						try {
-							queue.wait();
-						} catch (InterruptedException e) {
-							System.err.println("Warning: Work queue interrupted.");
-							Thread.currentThread().interrupt();
-						}
+			while (!shutdown) {
+				r = take();
+				if (r == null) {
+					// check again after joining the idle workers, so a task submitted
+					// in between either is found or wakes this worker
+					idle.add(this);
+					r = take();
+					if (r == null && !shutdown) {
+						LockSupport.park(WorkQueue.this);
+					}
+					if (!idle.remove(this)) {
+						// taken off the idle workers by signal(), so let the next one be woken
+						waking.set(false);
+						signalled = true;
+					}
+					if (Thread.interrupted()) {
+						System.err.println("Warning: Work queue interrupted.");
 					}
+					if (r == null) {
+						continue;
+					}
+				}
 
-					if (shutdown) {
-						break;
-					} else {
-						r = queue.removeFirst();
+				if (signalled) {
+					signalled = false;
+					if (hasWork()) {
+						signal();
 					}
 				}
+
 				try {
 					r.run();
 				} catch (RuntimeException e) {